@@ -0,0 +1,153 @@
+package io.example.application;
+
+import io.example.domain.BookingEvent;
+import io.example.domain.Participant.ParticipantType;
+import io.example.domain.Timeslot;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Searches for the earliest bookable slots of a student over a year of hourly
+// slots (8,760), with the BookableIndex and, as the baseline, by testing
+// Timeslot.isBookable on every slot as a client reading each slot would (minus
+// the round trips). Every slot has `studentsPerSlot` students and three each of
+// instructors and aircraft available, drawn from a roster of 5,000 students, 300
+// instructors and 300 aircraft, so a student is available in about
+// 8,760 * studentsPerSlot / 5,000 slots.
+//
+// The target is a p99 search latency below 100us with the index. Sample time
+// mode reports the percentiles. Run with:
+//   mvn -B -Pbenchmark -DskipTests test -Djmh.args="BookableIndex -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookableIndexBenchmark {
+
+    private static final int SLOTS = 365 * 24;
+    private static final int STUDENTS = 5_000;
+    private static final int INSTRUCTORS = 300;
+    private static final int AIRCRAFT = 300;
+    private static final int PER_TYPE = 3;
+    private static final Instant BASE = Instant.parse("2030-01-01T00:00:00Z");
+    private static final DateTimeFormatter SLOT_ID_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd-HH");
+
+    @Param({"10", "50"})
+    public int studentsPerSlot;
+
+    private BookableIndex index;
+    private List<Timeslot> timeslots;
+    private List<BookingEvent> toggles;
+    private String[] studentIds;
+    private String[] instructorIds;
+    private int next;
+
+    @Setup
+    public void populate() {
+        var random = new Random(42);
+        index = new BookableIndex(BASE, Duration.ofDays(366), Duration.ofMinutes(5));
+        timeslots = new ArrayList<>(SLOTS);
+        for (int slot = 0; slot < SLOTS; slot++) {
+            var slotId = slotId(slot);
+            var timeslot = Timeslot.empty();
+            var events = new ArrayList<BookingEvent>();
+            random.ints(0, STUDENTS).distinct().limit(studentsPerSlot)
+                .forEach(i -> events.add(marked(slotId, "student-" + i, ParticipantType.STUDENT)));
+            random.ints(0, INSTRUCTORS).distinct().limit(PER_TYPE)
+                .forEach(i -> events.add(marked(slotId, "instructor-" + i, ParticipantType.INSTRUCTOR)));
+            random.ints(0, AIRCRAFT).distinct().limit(PER_TYPE)
+                .forEach(i -> events.add(marked(slotId, "aircraft-" + i, ParticipantType.AIRCRAFT)));
+            for (var event : events) {
+                index.apply(event);
+                timeslot = timeslot.apply(event);
+            }
+            timeslots.add(timeslot);
+        }
+
+        studentIds = new String[1024];
+        instructorIds = new String[1024];
+        toggles = new ArrayList<>(1024);
+        for (int i = 0; i < studentIds.length; i++) {
+            studentIds[i] = "student-" + random.nextInt(STUDENTS);
+            instructorIds[i] = "instructor-" + random.nextInt(INSTRUCTORS);
+        }
+        // Marks a student outside the roster available and unmarks it again, so
+        // the index returns to the same state every 1,024 events
+        for (int i = 0; i < 512; i++) {
+            var slotId = slotId(random.nextInt(SLOTS));
+            var studentId = "visiting-student-" + i;
+            toggles.add(marked(slotId, studentId, ParticipantType.STUDENT));
+            toggles.add(new BookingEvent.ParticipantUnmarkedAvailable(slotId, studentId, ParticipantType.STUDENT));
+        }
+    }
+
+    @Benchmark
+    public List<BookableIndex.Match> searchAnyInstructorAndAircraft() {
+        return index.search(studentIds[next++ & 1023], null, null, BASE, 10);
+    }
+
+    @Benchmark
+    public List<BookableIndex.Match> searchPinnedInstructor() {
+        int i = next++ & 1023;
+        return index.search(studentIds[i], instructorIds[i], null, BASE, 10);
+    }
+
+    // Baseline: the earliest 10 slots found by reading every Timeslot in order
+    @Benchmark
+    public List<String> scanTimeslots() {
+        var studentId = studentIds[next++ & 1023];
+        var matches = new ArrayList<String>();
+        for (int slot = 0; slot < SLOTS && matches.size() < 10; slot++) {
+            var timeslot = timeslots.get(slot);
+            if (anyBookable(timeslot, studentId)) {
+                matches.add(slotId(slot));
+            }
+        }
+        return matches;
+    }
+
+    // Applying an event, as BookableIndexUpdater does for every booking slot event
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public BookableIndex applyEvent() {
+        index.apply(toggles.get(next++ & 1023));
+        return index;
+    }
+
+    // isBookable for some instructor and aircraft of the slot
+    private static boolean anyBookable(Timeslot timeslot, String studentId) {
+        if (!timeslot.isWaiting(studentId, ParticipantType.STUDENT)) {
+            return false;
+        }
+        var types = timeslot.available().stream().map(p -> p.participantType()).toList();
+        return types.contains(ParticipantType.INSTRUCTOR) && types.contains(ParticipantType.AIRCRAFT);
+    }
+
+    private static BookingEvent marked(String slotId, String participantId, ParticipantType type) {
+        return new BookingEvent.ParticipantMarkedAvailable(slotId, participantId, type);
+    }
+
+    private static String slotId(int slot) {
+        return LocalDateTime.ofInstant(BASE.plus(Duration.ofHours(slot)), ZoneOffset.UTC).format(SLOT_ID_FORMAT);
+    }
+}
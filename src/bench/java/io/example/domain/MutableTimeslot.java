@@ -0,0 +1,67 @@
+package io.example.domain;
+
+import io.example.domain.Participant.ParticipantType;
+import io.example.domain.Timeslot.Booking;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Baseline for the replay benchmarks: the previous Timeslot implementation,
+// which indexed bookings in mutable hash maps and updated them in place on
+// every event.
+final class MutableTimeslot {
+
+  private final Map<Participant, Booking> bookingsByParticipant = new HashMap<>();
+  private final Map<String, List<Booking>> bookingsById = new HashMap<>();
+  private final Set<Participant> available = new HashSet<>();
+
+  MutableTimeslot reserve(BookingEvent.ParticipantMarkedAvailable reserved) {
+    available.add(new Participant(reserved.participantId(), reserved.participantType()));
+    return this;
+  }
+
+  MutableTimeslot unreserve(BookingEvent.ParticipantUnmarkedAvailable unreserved) {
+    available.remove(new Participant(unreserved.participantId(), unreserved.participantType()));
+    return this;
+  }
+
+  MutableTimeslot book(BookingEvent.ParticipantBooked booked) {
+    Participant p = new Participant(booked.participantId(), booked.participantType());
+    return book(p, booked.bookingId());
+  }
+
+  MutableTimeslot book(BookingEvent.ReservationBooked booked) {
+    book(new Participant(booked.studentId(), ParticipantType.STUDENT), booked.bookingId());
+    book(new Participant(booked.instructorId(), ParticipantType.INSTRUCTOR), booked.bookingId());
+    return book(new Participant(booked.aircraftId(), ParticipantType.AIRCRAFT), booked.bookingId());
+  }
+
+  private MutableTimeslot book(Participant p, String bookingId) {
+    available.remove(p);
+    Booking booking = new Booking(p, bookingId);
+    bookingsByParticipant.put(p, booking);
+    bookingsById.computeIfAbsent(booking.bookingId(), id -> new ArrayList<>(3)).add(booking);
+    return this;
+  }
+
+  boolean isBookable(String studentId, String aircraftId, String instructorId) {
+    return available.contains(new Participant(studentId, ParticipantType.STUDENT))
+        && available.contains(new Participant(aircraftId, ParticipantType.AIRCRAFT))
+        && available.contains(new Participant(instructorId, ParticipantType.INSTRUCTOR));
+  }
+
+  MutableTimeslot cancelBooking(String bookingId) {
+    List<Booking> removed = bookingsById.remove(bookingId);
+    if (removed != null) {
+      removed.forEach(b -> bookingsByParticipant.remove(b.participant()));
+    }
+    return this;
+  }
+
+  int size() {
+    return bookingsByParticipant.size() + available.size();
+  }
+}
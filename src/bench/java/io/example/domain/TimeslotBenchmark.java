@@ -0,0 +1,165 @@
+package io.example.domain;
+
+import io.example.domain.Participant.ParticipantType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The Timeslot operations on the booking slot command and event paths, over
+// slots holding `slotSize` participants of each type. Half of them are booked
+// in pairs of three and half are available. Replay runs the journal through
+// Timeslot.apply, which is BookingSlotEntity's event handler. Run with:
+//   mvn -B -Pbenchmark -DskipTests test -Djmh.args="TimeslotBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeslotBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class SlotState {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int slotSize;
+
+    Timeslot slot;
+    String availableStudent;
+    String availableAircraft;
+    String availableInstructor;
+    String bookedStudent;
+    String bookingId;
+    BookingEvent.ReservationBooked booking;
+
+    @Setup
+    public void buildSlot() {
+      var bookings = new ArrayList<Timeslot.Booking>();
+      var available = new ArrayList<Participant>();
+      for (int n = 0; n < slotSize; n++) {
+        if (n % 2 == 0) {
+          for (var participant : participants(n)) {
+            bookings.add(new Timeslot.Booking(participant, "booking-" + n));
+          }
+        } else {
+          available.addAll(participants(n));
+        }
+      }
+      slot = Timeslot.of(bookings, available);
+
+      // Participants from the middle of the slot, so lookups don't hit the
+      // first or last entries inserted
+      int middle = slotSize / 2;
+      int availableN = middle % 2 == 1 ? middle : middle + 1;
+      int bookedN = availableN - 1;
+      availableStudent = "student-" + availableN;
+      availableAircraft = "aircraft-" + availableN;
+      availableInstructor = "instructor-" + availableN;
+      bookedStudent = "student-" + bookedN;
+      bookingId = "booking-" + bookedN;
+      booking =
+          new BookingEvent.ReservationBooked(
+              "slot", "new-booking", availableStudent, availableAircraft, availableInstructor);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class JournalState {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int slotSize;
+
+    @Param({"1000", "10000", "100000"})
+    public int journalLength;
+
+    List<BookingEvent> journal;
+
+    // Each round marks every participant available and books every other
+    // triple, canceling the triple's booking from the previous round first.
+    // Short journals over large slots end before the first round completes.
+    @Setup
+    public void generateJournal() {
+      journal = new ArrayList<>(journalLength);
+      for (int round = 0; journal.size() < journalLength; round++) {
+        for (int n = 0; n < slotSize && journal.size() < journalLength; n++) {
+          if (n % 2 == 0 && round > 0) {
+            journal.add(
+                new BookingEvent.ReservationCanceled(
+                    "slot",
+                    "booking-" + (round - 1) + "-" + n,
+                    "student-" + n,
+                    "aircraft-" + n,
+                    "instructor-" + n));
+          }
+          for (var participant : participants(n)) {
+            journal.add(
+                new BookingEvent.ParticipantMarkedAvailable(
+                    "slot", participant.id(), participant.participantType()));
+          }
+          if (n % 2 == 0) {
+            journal.add(
+                new BookingEvent.ReservationBooked(
+                    "slot",
+                    "booking-" + round + "-" + n,
+                    "student-" + n,
+                    "aircraft-" + n,
+                    "instructor-" + n));
+          }
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public boolean isBookable(SlotState state) {
+    return state.slot.isBookable(
+        state.availableStudent, state.availableAircraft, state.availableInstructor);
+  }
+
+  @Benchmark
+  public boolean isBookableWhenBooked(SlotState state) {
+    return state.slot.isBookable(
+        state.bookedStudent, state.availableAircraft, state.availableInstructor);
+  }
+
+  @Benchmark
+  public List<Timeslot.Booking> findBooking(SlotState state) {
+    return state.slot.findBooking(state.bookingId);
+  }
+
+  @Benchmark
+  public Timeslot cancelBooking(SlotState state) {
+    return state.slot.cancelBooking(state.bookingId);
+  }
+
+  @Benchmark
+  public Timeslot book(SlotState state) {
+    return state.slot.book(state.booking);
+  }
+
+  @Benchmark
+  public Timeslot replay(JournalState state) {
+    Timeslot slot = Timeslot.empty();
+    for (BookingEvent event : state.journal) {
+      slot = slot.apply(event);
+    }
+    return slot;
+  }
+
+  private static List<Participant> participants(int n) {
+    return List.of(
+        new Participant("student-" + n, ParticipantType.STUDENT),
+        new Participant("aircraft-" + n, ParticipantType.AIRCRAFT),
+        new Participant("instructor-" + n, ParticipantType.INSTRUCTOR));
+  }
+}
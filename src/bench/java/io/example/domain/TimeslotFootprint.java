@@ -0,0 +1,112 @@
+package io.example.domain;
+
+import io.example.domain.Participant.ParticipantType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.openjdk.jol.info.GraphLayout;
+
+// Measures the retained heap per active slot for the current Timeslot, which
+// shares Participant instances between slots, against the previous
+// representation in UninternedTimeslot. Both are built from the same journals,
+// whose IDs are fresh strings per event as they are after deserialization.
+// Run with:
+//   mvn -B -Pbenchmark -DskipTests test-compile exec:java \
+//     -Dexec.mainClass=io.example.domain.TimeslotFootprint -Dexec.classpathScope=test
+//
+// Optional arguments: slots, students, instructors, aircraft (defaults 10000,
+// 5000, 300, 300).
+public final class TimeslotFootprint {
+
+  private static final int AVAILABLE_STUDENTS = 10;
+  private static final int AVAILABLE_INSTRUCTORS = 3;
+  private static final int AVAILABLE_AIRCRAFT = 3;
+  private static final int BOOKINGS = 2;
+
+  public static void main(String[] args) throws Exception {
+    int slots = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    int students = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+    int instructors = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+    int aircraft = args.length > 3 ? Integer.parseInt(args[3]) : 300;
+
+    var random = new Random(42);
+    var previous = new ArrayList<UninternedTimeslot>(slots);
+    var current = new ArrayList<Timeslot>(slots);
+    for (int i = 0; i < slots; i++) {
+      var journal = journal(random, i, students, instructors, aircraft);
+      UninternedTimeslot before = UninternedTimeslot.EMPTY;
+      Timeslot after = Timeslot.empty();
+      for (BookingEvent event : journal) {
+        before = before.apply(event);
+        after = after.apply(event);
+      }
+      previous.add(before);
+      current.add(after);
+    }
+
+    long previousBytes = GraphLayout.parseInstance(previous.toArray()).totalSize();
+    long currentBytes = GraphLayout.parseInstance(current.toArray()).totalSize();
+    var interned = Participant.class.getDeclaredField("INTERNED");
+    interned.setAccessible(true);
+    long tableBytes = GraphLayout.parseInstance(interned.get(null)).totalSize();
+
+    System.out.printf(
+        "%d slots, %d available and %d bookings each, roster of %d students, %d instructors,"
+            + " %d aircraft%n",
+        slots,
+        AVAILABLE_STUDENTS + AVAILABLE_INSTRUCTORS + AVAILABLE_AIRCRAFT - BOOKINGS * 3,
+        BOOKINGS,
+        students,
+        instructors,
+        aircraft);
+    System.out.printf("previous: %,d bytes per slot%n", previousBytes / slots);
+    System.out.printf(
+        "current:  %,d bytes per slot (%,d including the shared participant table)%n",
+        currentBytes / slots, (currentBytes + tableBytes) / slots);
+    System.out.printf(
+        "saving:   %.1f%%%n", 100.0 * (previousBytes - currentBytes - tableBytes) / previousBytes);
+  }
+
+  // Marks random participants available and books some of them
+  private static List<BookingEvent> journal(
+      Random random, int slot, int students, int instructors, int aircraft) {
+    var slotId = "slot-" + slot;
+    var events = new ArrayList<BookingEvent>();
+    var studentIds = ids(random, "student-", students, AVAILABLE_STUDENTS);
+    var instructorIds = ids(random, "instructor-", instructors, AVAILABLE_INSTRUCTORS);
+    var aircraftIds = ids(random, "aircraft-", aircraft, AVAILABLE_AIRCRAFT);
+    studentIds.forEach(id -> events.add(marked(slotId, id, ParticipantType.STUDENT)));
+    instructorIds.forEach(id -> events.add(marked(slotId, id, ParticipantType.INSTRUCTOR)));
+    aircraftIds.forEach(id -> events.add(marked(slotId, id, ParticipantType.AIRCRAFT)));
+    for (int b = 0; b < BOOKINGS; b++) {
+      events.add(
+          new BookingEvent.ReservationBooked(
+              slotId,
+              fresh(slotId + "-booking-" + b),
+              fresh(studentIds.get(b)),
+              fresh(aircraftIds.get(b)),
+              fresh(instructorIds.get(b))));
+    }
+    return events;
+  }
+
+  private static List<String> ids(Random random, String prefix, int roster, int count) {
+    var ids = new ArrayList<String>(count);
+    while (ids.size() < count) {
+      var id = prefix + random.nextInt(roster);
+      if (!ids.contains(id)) {
+        ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  private static BookingEvent marked(String slotId, String id, ParticipantType type) {
+    return new BookingEvent.ParticipantMarkedAvailable(slotId, fresh(id), type);
+  }
+
+  // A distinct copy, as every deserialized event has its own strings
+  private static String fresh(String value) {
+    return new String(value.toCharArray());
+  }
+}
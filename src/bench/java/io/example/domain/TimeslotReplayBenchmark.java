@@ -0,0 +1,119 @@
+package io.example.domain;
+
+import io.example.domain.Participant.ParticipantType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Replays a long booking-slot journal through the persistent Timeslot and
+// through the previous mutable implementation. `eventFormat` selects how
+// bookings and cancellations are journaled: `reservation`, one event naming all
+// three participants as BookingSlotEntity persists them now, or `legacy`, one
+// event per participant as in journals written before. Run with:
+//   mvn -B -Pbenchmark -DskipTests test -Djmh.args="TimeslotReplay -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeslotReplayBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int journalLength;
+
+  @Param({"100"})
+  public int participantsPerType;
+
+  @Param({"reservation", "legacy"})
+  public String eventFormat;
+
+  private List<BookingEvent> journal;
+
+  @Setup
+  public void generateJournal() {
+    journal = new ArrayList<>(journalLength);
+    int booking = 0;
+    while (journal.size() < journalLength) {
+      int n = journal.size() % participantsPerType;
+      String student = "student-" + n;
+      String instructor = "instructor-" + n;
+      String aircraft = "aircraft-" + n;
+      String bookingId = "booking-" + booking++;
+
+      // Typical history for a busy slot: availability churn followed by
+      // a booking that is eventually canceled.
+      journal.add(marked(student, ParticipantType.STUDENT));
+      journal.add(unmarked(student, ParticipantType.STUDENT));
+      journal.add(marked(student, ParticipantType.STUDENT));
+      journal.add(marked(instructor, ParticipantType.INSTRUCTOR));
+      journal.add(marked(aircraft, ParticipantType.AIRCRAFT));
+      if (eventFormat.equals("legacy")) {
+        journal.add(booked(student, ParticipantType.STUDENT, bookingId));
+        journal.add(booked(instructor, ParticipantType.INSTRUCTOR, bookingId));
+        journal.add(booked(aircraft, ParticipantType.AIRCRAFT, bookingId));
+        journal.add(canceled(student, ParticipantType.STUDENT, bookingId));
+      } else {
+        journal.add(
+            new BookingEvent.ReservationBooked("slot", bookingId, student, aircraft, instructor));
+        journal.add(
+            new BookingEvent.ReservationCanceled("slot", bookingId, student, aircraft, instructor));
+      }
+    }
+  }
+
+  @Benchmark
+  public Timeslot replayPersistent() {
+    Timeslot slot = Timeslot.empty();
+    for (BookingEvent event : journal) {
+      slot = slot.apply(event);
+    }
+    return slot;
+  }
+
+  @Benchmark
+  public MutableTimeslot replayMutable() {
+    MutableTimeslot slot = new MutableTimeslot();
+    for (BookingEvent event : journal) {
+      slot =
+          switch (event) {
+            case BookingEvent.ParticipantMarkedAvailable e -> slot.reserve(e);
+            case BookingEvent.ParticipantUnmarkedAvailable e -> slot.unreserve(e);
+            case BookingEvent.ReservationBooked e -> slot.book(e);
+            case BookingEvent.ReservationCanceled e -> slot.cancelBooking(e.bookingId());
+            case BookingEvent.ParticipantBooked e -> slot.book(e);
+            case BookingEvent.ParticipantCanceled e -> slot.cancelBooking(e.bookingId());
+            // The journal only holds the events the mutable implementation knew
+            default -> throw new IllegalStateException("Unexpected event " + event);
+          };
+    }
+    return slot;
+  }
+
+  private static BookingEvent marked(String id, ParticipantType type) {
+    return new BookingEvent.ParticipantMarkedAvailable("slot", id, type);
+  }
+
+  private static BookingEvent unmarked(String id, ParticipantType type) {
+    return new BookingEvent.ParticipantUnmarkedAvailable("slot", id, type);
+  }
+
+  private static BookingEvent booked(String id, ParticipantType type, String bookingId) {
+    return new BookingEvent.ParticipantBooked("slot", id, type, bookingId);
+  }
+
+  private static BookingEvent canceled(String id, ParticipantType type, String bookingId) {
+    return new BookingEvent.ParticipantCanceled("slot", id, type, bookingId);
+  }
+}
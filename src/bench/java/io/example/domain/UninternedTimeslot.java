@@ -0,0 +1,80 @@
+package io.example.domain;
+
+import io.example.domain.Participant.ParticipantType;
+import io.example.domain.Timeslot.Booking;
+import java.util.List;
+import java.util.stream.Stream;
+import org.pcollections.HashTreePMap;
+import org.pcollections.HashTreePSet;
+import org.pcollections.PMap;
+import org.pcollections.PSet;
+
+// Baseline for the footprint measurement: the previous persistent Timeslot,
+// which allocated a new Participant per event and kept a Booking object per
+// booked participant, indexed both by participant and by booking ID. Only the
+// transitions needed to build slots from events are kept.
+final class UninternedTimeslot {
+
+  static final UninternedTimeslot EMPTY =
+      new UninternedTimeslot(HashTreePMap.empty(), HashTreePMap.empty(), HashTreePSet.empty());
+
+  private final PMap<Participant, Booking> bookingsByParticipant;
+  private final PMap<String, List<Booking>> bookingsById;
+  private final PSet<Participant> available;
+
+  private UninternedTimeslot(
+      PMap<Participant, Booking> bookingsByParticipant,
+      PMap<String, List<Booking>> bookingsById,
+      PSet<Participant> available) {
+    this.bookingsByParticipant = bookingsByParticipant;
+    this.bookingsById = bookingsById;
+    this.available = available;
+  }
+
+  UninternedTimeslot apply(BookingEvent event) {
+    return switch (event) {
+      case BookingEvent.ParticipantMarkedAvailable e ->
+          withAvailable(available.plus(new Participant(e.participantId(), e.participantType())));
+      case BookingEvent.ParticipantUnmarkedAvailable e ->
+          withAvailable(available.minus(new Participant(e.participantId(), e.participantType())));
+      case BookingEvent.ReservationBooked e -> book(e);
+      case BookingEvent.ReservationCanceled e -> cancelBooking(e.bookingId());
+      default -> throw new IllegalStateException("Unexpected event " + event);
+    };
+  }
+
+  private UninternedTimeslot book(BookingEvent.ReservationBooked booked) {
+    Participant student = new Participant(booked.studentId(), ParticipantType.STUDENT);
+    Participant aircraft = new Participant(booked.aircraftId(), ParticipantType.AIRCRAFT);
+    Participant instructor = new Participant(booked.instructorId(), ParticipantType.INSTRUCTOR);
+    return withAvailable(available.minus(student).minus(aircraft).minus(instructor))
+        .withBooking(new Booking(student, booked.bookingId()))
+        .withBooking(new Booking(instructor, booked.bookingId()))
+        .withBooking(new Booking(aircraft, booked.bookingId()));
+  }
+
+  private UninternedTimeslot cancelBooking(String bookingId) {
+    List<Booking> removed = bookingsById.get(bookingId);
+    if (removed == null) {
+      return this;
+    }
+    PMap<Participant, Booking> byParticipant = bookingsByParticipant;
+    for (Booking booking : removed) {
+      byParticipant = byParticipant.minus(booking.participant());
+    }
+    return new UninternedTimeslot(byParticipant, bookingsById.minus(bookingId), available);
+  }
+
+  private UninternedTimeslot withAvailable(PSet<Participant> newAvailable) {
+    return new UninternedTimeslot(bookingsByParticipant, bookingsById, newAvailable);
+  }
+
+  private UninternedTimeslot withBooking(Booking booking) {
+    List<Booking> sameId = bookingsById.getOrDefault(booking.bookingId(), List.of());
+    return new UninternedTimeslot(
+        bookingsByParticipant.plus(booking.participant(), booking),
+        bookingsById.plus(
+            booking.bookingId(), Stream.concat(sameId.stream(), Stream.of(booking)).toList()),
+        available);
+  }
+}
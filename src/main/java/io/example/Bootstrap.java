@@ -0,0 +1,75 @@
+package io.example;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.ServiceSetup;
+import akka.javasdk.annotations.Setup;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import io.example.application.BookableIndex;
+import io.example.application.FlightMetrics;
+import io.example.application.SlotArchiver;
+import io.example.application.SlotCache;
+import io.example.domain.SlotTime;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Creates the service-wide, in-process dependencies that are shared
+// between components, and starts the slot archiver
+@Setup
+public class Bootstrap implements ServiceSetup {
+
+    private final Config config;
+    private final ComponentClient componentClient;
+    private final TimerScheduler timerScheduler;
+
+    public Bootstrap(Config config, ComponentClient componentClient, TimerScheduler timerScheduler) {
+        this.config = config;
+        this.componentClient = componentClient;
+        this.timerScheduler = timerScheduler;
+    }
+
+    // Makes sure the archiver's timer chain is running. The chain's timer name
+    // is fixed, so this replaces its pending run rather than starting a second
+    // chain, and a run in flight re-arms the same timer. The archiver checks its
+    // window itself, so the first run may only reschedule.
+    @Override
+    public void onStartup() {
+        if (config.getBoolean("flight.archive.enabled")) {
+            SlotArchiver.scheduleRun(timerScheduler, componentClient, 0, Duration.ofMinutes(1));
+        }
+    }
+
+    @Override
+    public DependencyProvider createDependencyProvider() {
+        var slotCache = new SlotCache(
+            config.getInt("flight.availability-cache.max-entries"),
+            config.getDuration("flight.availability-cache.ttl")
+        );
+        var metrics = new FlightMetrics();
+        var bookableIndex = new BookableIndex(
+            BookableIndex.windowBase(SlotTime.toInstant(LocalDateTime.now(ZoneOffset.UTC))),
+            config.getDuration("flight.bookable-index.horizon"),
+            config.getDuration("flight.bookable-index.refresh-interval")
+        );
+
+        return new DependencyProvider() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getDependency(Class<T> clazz) {
+                if (clazz == SlotCache.class) {
+                    return (T) slotCache;
+                }
+                if (clazz == FlightMetrics.class) {
+                    return (T) metrics;
+                }
+                if (clazz == BookableIndex.class) {
+                    return (T) bookableIndex;
+                }
+                throw new IllegalArgumentException("Unknown dependency type " + clazz);
+            }
+        };
+    }
+}
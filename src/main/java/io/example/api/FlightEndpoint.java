@@ -1,6 +1,9 @@
 package io.example.api;
 
+import akka.Done;
+import akka.http.javadsl.model.HttpHeader;
 import akka.http.javadsl.model.HttpResponse;
+import akka.javasdk.CommandException;
 import akka.javasdk.annotations.Acl;
 import akka.javasdk.annotations.http.Delete;
 import akka.javasdk.annotations.http.Get;
@@ -10,123 +13,755 @@ import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.AbstractHttpEndpoint;
 import akka.javasdk.http.HttpException;
 import akka.javasdk.http.HttpResponses;
+import com.typesafe.config.Config;
+import io.example.application.BlockBookingWorkflow;
+import io.example.application.BookableIndex;
 import io.example.application.BookingSlotEntity;
+import io.example.application.BoundedParallelism;
+import io.example.application.FlightMetrics;
 import io.example.application.ParticipantSlotsView;
 import io.example.application.ParticipantSlotsView.SlotList;
+import io.example.application.ParticipantSlotsView.SlotPage;
+import io.example.application.SlotArchiveEntity;
+import io.example.application.SlotAvailabilityView;
+import io.example.application.SlotCache;
+import io.example.application.SlotCapacityView;
+import io.example.application.SlotParticipantsView;
+import io.example.application.SlotWaitlistEntity;
+import io.example.application.WaitlistPromoter;
 import io.example.domain.Participant;
 import io.example.domain.Participant.ParticipantType;
+import io.example.domain.SlotTime;
 import io.example.domain.Timeslot;
+import io.example.domain.WeeklyScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
 @HttpEndpoint("/flight")
 public class FlightEndpoint extends AbstractHttpEndpoint {
     private final Logger log = LoggerFactory.getLogger(FlightEndpoint.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_BLOCK_SIZE = 8;
+    private static final int DEFAULT_BOOKABLE_RESULTS = 10;
+    private static final int MAX_BOOKABLE_RESULTS = 100;
+    private static final Duration MAX_SCHEDULE_RANGE = Duration.ofDays(7);
+    private static final int MAX_SCHEDULE_LESSONS = 5000;
+
     private final ComponentClient componentClient;
+    private final SlotCache slotCache;
+    private final FlightMetrics metrics;
+    private final BookableIndex bookableIndex;
+    private final boolean directReadModel;
+    private final int batchParallelism;
 
-    public FlightEndpoint(ComponentClient componentClient) {
+    public FlightEndpoint(
+        ComponentClient componentClient,
+        SlotCache slotCache,
+        FlightMetrics metrics,
+        BookableIndex bookableIndex,
+        Config config
+    ) {
         this.componentClient = componentClient;
+        this.slotCache = slotCache;
+        this.metrics = metrics;
+        this.bookableIndex = bookableIndex;
+        this.directReadModel = "direct".equals(config.getString("flight.read-model.pipeline"));
+        this.batchParallelism = config.getInt("flight.batch.parallelism");
     }
 
     // Creates a new booking. All three identified participants will
     // be considered booked for the given timeslot, if they are all
     // "available" at the time of booking.
     @Post("/bookings/{slotId}")
-    public HttpResponse createBooking(String slotId, BookingRequest request) {
+    public CompletionStage<HttpResponse> createBooking(String slotId, BookingRequest request) {
         log.info("Creating booking for slot {}: {}", slotId, request);
 
-        componentClient
+        var call = metrics.time("bookSlot", componentClient
             .forEventSourcedEntity(slotId)
             .method(BookingSlotEntity::bookSlot)
-            .invoke(new BookingSlotEntity.Command.BookReservation(
+            .invokeAsync(new BookingSlotEntity.Command.BookReservation(
                 request.studentId,
                 request.aircraftId,
                 request.instructorId,
                 request.bookingId
-            ));
+            )));
 
-        return HttpResponses.created();
+        return respond(slotId, call, HttpResponses.created());
     }
 
     // Cancels an existing booking. Note that both the slot
     // ID and the booking ID are required.
     @Delete("/bookings/{slotId}/{bookingId}")
-    public HttpResponse cancelBooking(String slotId, String bookingId) {
+    public CompletionStage<HttpResponse> cancelBooking(String slotId, String bookingId) {
         log.info("Canceling booking id {}", bookingId);
 
-        componentClient
+        var call = metrics.time("cancelBooking", componentClient
             .forEventSourcedEntity(slotId)
             .method(BookingSlotEntity::cancelBooking)
-            .invoke(bookingId);
+            .invokeAsync(bookingId));
 
-        return HttpResponses.ok();
+        return respond(slotId, call, HttpResponses.ok());
+    }
+
+    // Puts the student on the slot's waitlist, to be booked with the given
+    // instructor and aircraft as soon as all three are available (see
+    // WaitlistPromoter). The booking ID is generated when not given. If the slot
+    // already has room, the student is booked right away; either way the
+    // booking shows up under GET /slots/{studentId}/booked once made.
+    @Post("/waitlist/{slotId}")
+    public CompletionStage<SlotWaitlistEntity.Entry> joinWaitlist(String slotId, WaitlistRequest request) {
+        if (request.studentId() == null || request.aircraftId() == null || request.instructorId() == null) {
+            throw HttpException.badRequest("studentId, aircraftId and instructorId are required");
+        }
+        var bookingId = request.bookingId() == null || request.bookingId().isBlank()
+            ? UUID.randomUUID().toString()
+            : request.bookingId();
+        var entry = new SlotWaitlistEntity.Entry(
+            request.studentId(), request.aircraftId(), request.instructorId(), bookingId, Instant.now()
+        );
+        log.info("Adding {} to the waitlist of slot {}", request.studentId(), slotId);
+
+        return metrics.time("joinWaitlist", componentClient
+                .forKeyValueEntity(slotId)
+                .method(SlotWaitlistEntity::join)
+                .invokeAsync(entry))
+            .exceptionally(error -> {
+                if (unwrap(error) instanceof CommandException rejected) {
+                    throw HttpException.badRequest(rejected.getMessage());
+                }
+                throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+            })
+            // A failed check only delays the promotion to the slot's next event
+            .thenCompose(joined -> WaitlistPromoter.promote(componentClient, metrics, slotId)
+                .handle((done, error) -> {
+                    if (error != null) {
+                        log.warn("Checking the waitlist of slot {} failed", slotId, unwrap(error));
+                    }
+                    return entry;
+                }));
+    }
+
+    @Delete("/waitlist/{slotId}/{studentId}")
+    public CompletionStage<HttpResponse> leaveWaitlist(String slotId, String studentId) {
+        return componentClient
+            .forKeyValueEntity(slotId)
+            .method(SlotWaitlistEntity::leave)
+            .invokeAsync(studentId)
+            .thenApply(done -> HttpResponses.ok());
+    }
+
+    // The students waiting for the slot, in the order they will be promoted
+    @Get("/waitlist/{slotId}")
+    public CompletionStage<SlotWaitlistEntity.State> getWaitlist(String slotId) {
+        return componentClient
+            .forKeyValueEntity(slotId)
+            .method(SlotWaitlistEntity::getWaitlist)
+            .invokeAsync();
+    }
+
+    // Books a block of consecutive slots (e.g. a cross-country lesson) for the
+    // same three participants in one call. The slots are booked concurrently and
+    // all-or-nothing: if any slot can't be booked, the ones that were are canceled
+    // again. Returns once the block booking has started; its outcome and latency
+    // are reported by GET /block-bookings/{bookingId}.
+    @Post("/block-bookings")
+    public CompletionStage<HttpResponse> createBlockBooking(BlockBookingRequest request) {
+        if (request.bookingId() == null || request.bookingId().isBlank()) {
+            throw HttpException.badRequest("bookingId is required");
+        }
+        validateBlock(request.slotIds());
+
+        log.info("Creating block booking {} for slots {}", request.bookingId(), request.slotIds());
+
+        return metrics.time("bookBlock", componentClient
+                .forWorkflow(request.bookingId())
+                .method(BlockBookingWorkflow::book)
+                .invokeAsync(new BlockBookingWorkflow.Command.BookBlock(
+                    request.bookingId(),
+                    request.slotIds(),
+                    request.studentId(),
+                    request.aircraftId(),
+                    request.instructorId()
+                )))
+            .handle((done, error) -> {
+                if (error == null) {
+                    return HttpResponses.created();
+                }
+                if (unwrap(error) instanceof CommandException rejected) {
+                    return HttpResponses.badRequest(rejected.getMessage());
+                }
+                throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+            });
+    }
+
+    // The status of a block booking: BOOKING, COMPENSATING, BOOKED or FAILED
+    // (with the reason), plus how long the block took once it is done
+    @Get("/block-bookings/{bookingId}")
+    public CompletionStage<BlockBookingWorkflow.State> getBlockBooking(String bookingId) {
+        return componentClient
+            .forWorkflow(bookingId)
+            .method(BlockBookingWorkflow::getBlock)
+            .invokeAsync()
+            .exceptionally(error -> {
+                if (unwrap(error) instanceof CommandException) {
+                    throw HttpException.notFound();
+                }
+                throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+            });
     }
 
     // Retrieves all slots in which a given participant has the supplied status.
     // Used to retrieve bookings and slots in which the participant is available
     @Get("/slots/{participantId}/{status}")
-    public SlotList slotsByStatus(String participantId, String status) {
+    public CompletionStage<SlotList> slotsByStatus(String participantId, String status) {
+        if (directReadModel) {
+            return componentClient
+                .forView()
+                .method(SlotParticipantsView::getSlotsByStatusKey)
+                .invokeAsync(new SlotParticipantsView.StatusKeyInput(SlotParticipantsView.statusKey(participantId, status)))
+                .thenApply(result -> result.toSlotList(participantId, status));
+        }
         return componentClient
             .forView()
             .method(ParticipantSlotsView::getSlotsByParticipantAndStatus)
-            .invoke(new ParticipantSlotsView.ParticipantStatusInput(participantId, status));
+            .invokeAsync(new ParticipantSlotsView.ParticipantStatusInput(participantId, status));
+    }
+
+    // Retrieves one page of the slots in which a participant has the supplied
+    // status. Pass the returned `nextPageToken` as `pageToken` to get the next page.
+    @Get("/slots/{participantId}/{status}/page")
+    public CompletionStage<SlotPage> slotPageByStatus(String participantId, String status) {
+        var queryParams = requestContext().queryParams();
+        var pageToken = queryParams.getString("pageToken").orElse("");
+        var pageSize = queryParams.getInteger("pageSize").orElse(DEFAULT_PAGE_SIZE);
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw HttpException.badRequest("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        return componentClient
+            .forView()
+            .method(ParticipantSlotsView::getSlotPageByParticipantAndStatus)
+            .invokeAsync(new ParticipantSlotsView.ParticipantStatusPageInput(participantId, status, pageToken, pageSize));
+    }
+
+    // Retrieves the slots in which a participant has the supplied status that
+    // start within [from, to), ordered by start time. Both bounds are required and
+    // may be given in slot ID form (`2025-08-08-09`) or as an ISO-8601 local
+    // date-time. Only slots whose IDs follow the date convention can match.
+    @Get("/slots/{participantId}/{status}/range")
+    public CompletionStage<SlotList> slotsByStatusInRange(String participantId, String status) {
+        var from = requiredTimeParam("from");
+        var to = requiredTimeParam("to");
+
+        return componentClient
+            .forView()
+            .method(ParticipantSlotsView::getSlotsByParticipantAndStatusInRange)
+            .invokeAsync(new ParticipantSlotsView.ParticipantStatusRangeInput(participantId, status, from, to));
+    }
+
+    // Streams the slots in which a participant has the supplied status as
+    // server-sent events, one row per event, as the view produces them
+    @Get("/slots/{participantId}/{status}/stream")
+    public HttpResponse streamSlotsByStatus(String participantId, String status) {
+        var rows = componentClient
+            .forView()
+            .stream(ParticipantSlotsView::streamSlotsByParticipantAndStatus)
+            .source(new ParticipantSlotsView.ParticipantStatusInput(participantId, status));
+
+        return HttpResponses.serverSentEvents(rows);
+    }
+
+    // Pushes every change to a participant's slots as a server-sent `slot-row`
+    // event: first the rows changed since the resume offset, then each change
+    // as it happens. Unmarked and canceled slots arrive with the statuses
+    // `UNAVAILABLE` and `CANCELLED`. See `resumeOffset` for reconnecting.
+    @Get("/participants/{participantId}/events")
+    public HttpResponse participantSlotEvents(String participantId) {
+        var rows = componentClient
+            .forView()
+            .stream(ParticipantSlotsView::streamParticipantSlotChanges)
+            .source(new ParticipantSlotsView.ParticipantChangesInput(participantId, resumeOffset()));
+
+        return HttpResponses.serverSentEvents(rows, row -> row.updatedAt().toString(), row -> "slot-row");
     }
 
-    // Returns the internal availability state for a given slot
+    // Pushes the participants of a slot as a server-sent `slot` event every
+    // time the slot changes. See `resumeOffset` for reconnecting.
+    @Get("/availability/{slotId}/events")
+    public HttpResponse slotEvents(String slotId) {
+        var rows = componentClient
+            .forView()
+            .stream(SlotParticipantsView::streamSlotChanges)
+            .source(new SlotParticipantsView.SlotChangesInput(slotId, resumeOffset()));
+
+        return HttpResponses.serverSentEvents(rows, row -> row.updatedAt().toString(), row -> "slot");
+    }
+
+    // The participants available in each slot starting within [from, to),
+    // ordered by start time, from SlotAvailabilityView rather than the slot
+    // entities. With a `participantType` query parameter, only slots where
+    // someone of that type is available are returned, with only those
+    // participants. Bounds take the same forms as the range query above.
+    @Get("/availability")
+    public CompletionStage<SlotAvailabilityView.SlotAvailabilityList> availabilityInRange() {
+        var from = requiredTimeParam("from");
+        var to = requiredTimeParam("to");
+        var typeParam = requestContext().queryParams().getString("participantType");
+        if (typeParam.isEmpty()) {
+            return componentClient
+                .forView()
+                .method(SlotAvailabilityView::getAvailabilityInRange)
+                .invokeAsync(new SlotAvailabilityView.RangeInput(from, to));
+        }
+
+        var participantType = parseParticipantType(typeParam.get())
+            .orElseThrow(() -> HttpException.badRequest("invalid participant type " + typeParam.get()));
+        return componentClient
+            .forView()
+            .method(SlotAvailabilityView::getAvailabilityOfTypeInRange)
+            .invokeAsync(new SlotAvailabilityView.TypeRangeInput(participantType.toString(), from, to))
+            .thenApply(result -> new SlotAvailabilityView.SlotAvailabilityList(
+                result.slots().stream().map(row -> row.only(participantType)).toList()));
+    }
+
+    // The earliest slots in which the student could book, i.e. in which the
+    // student, an instructor and an aircraft are all available. Takes optional
+    // `instructorId` and `aircraftId` query parameters to pin either, `from` (in
+    // the same forms as the range queries, default now in UTC) and `limit`
+    // (default 10). Served from the in-process BookableIndex.
+    @Get("/bookable/{studentId}")
+    public CompletionStage<BookableSlots> bookableSlots(String studentId) {
+        var queryParams = requestContext().queryParams();
+        var instructorId = queryParams.getString("instructorId").orElse(null);
+        var aircraftId = queryParams.getString("aircraftId").orElse(null);
+        var now = SlotTime.toInstant(LocalDateTime.now(ZoneOffset.UTC));
+        var from = queryParams.getString("from").isPresent() ? requiredTimeParam("from") : now;
+        var limit = queryParams.getInteger("limit").orElse(DEFAULT_BOOKABLE_RESULTS);
+        if (limit < 1 || limit > MAX_BOOKABLE_RESULTS) {
+            throw HttpException.badRequest("limit must be between 1 and " + MAX_BOOKABLE_RESULTS);
+        }
+
+        return bookableIndex
+            .refresh(BookableIndex.windowBase(now), this::loadBookableIndex)
+            .thenApply(loaded -> new BookableSlots(bookableIndex.search(studentId, instructorId, aircraftId, from, limit)));
+    }
+
+    // Available participant counts and booking counts for every slot of a month
+    // (`yyyy-MM`), ordered by start time. Only slots whose IDs follow the date
+    // convention are included.
+    @Get("/capacity/{month}")
+    public CompletionStage<SlotCapacityView.SlotCapacityList> capacityForMonth(String month) {
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw HttpException.badRequest("invalid month " + month);
+        }
+
+        var from = SlotTime.toInstant(yearMonth.atDay(1).atStartOfDay());
+        var to = SlotTime.toInstant(yearMonth.plusMonths(1).atDay(1).atStartOfDay());
+        return componentClient
+            .forView()
+            .method(SlotCapacityView::getCapacityInRange)
+            .invokeAsync(new SlotCapacityView.RangeInput(from, to));
+    }
+
+    // Returns the internal availability state for a given slot. Served from
+    // the slot cache when possible; see SlotCache.
     @Get("/availability/{slotId}")
-    public Timeslot getSlot(String slotId) {
+    public CompletionStage<SlotResponse> getSlot(String slotId) {
+        var cached = slotCache.get(slotId);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(SlotResponse.of(cached.get()));
+        }
+
+        var stamp = slotCache.stamp();
+        return metrics.time("getSlot", componentClient
+                .forEventSourcedEntity(slotId)
+                .method(BookingSlotEntity::getSlot)
+                .invokeAsync())
+            .thenApply(slot -> {
+                slotCache.put(slotId, slot, stamp);
+                return SlotResponse.of(slot);
+            });
+    }
+
+    // The summaries of the archived slots of one day (`yyyy-MM-dd`); see
+    // SlotArchiver
+    @Get("/archive/{date}")
+    public CompletionStage<SlotArchiveEntity.State> getArchive(String date) {
         return componentClient
-            .forEventSourcedEntity(slotId)
-            .method(BookingSlotEntity::getSlot)
-            .invoke();
+            .forKeyValueEntity(date)
+            .method(SlotArchiveEntity::getArchive)
+            .invokeAsync()
+            .exceptionally(error -> {
+                if (unwrap(error) instanceof CommandException) {
+                    throw HttpException.notFound();
+                }
+                throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+            });
+    }
+
+    // Command latencies, rejections by reason and projection lag (see
+    // FlightMetrics), plus the availability cache counters. Only reachable from
+    // within this service, not from other services in the project.
+    @Get("/metrics")
+    @Acl(allow = @Acl.Matcher(service = "<self>"))
+    public MetricsResponse metrics() {
+        return new MetricsResponse(metrics.snapshot(), slotCache.stats());
+    }
+
+    // Hit/miss counters for the availability cache. Only reachable from
+    // within this service.
+    @Get("/metrics/availability-cache")
+    @Acl(allow = @Acl.Matcher(service = "<self>"))
+    public SlotCache.Stats availabilityCacheStats() {
+        return slotCache.stats();
     }
 
     // Indicates that the supplied participant is available for booking
     // within the indicated time slot
     @Post("/availability/{slotId}")
-    public HttpResponse markAvailable(String slotId, AvailabilityRequest request) {
-        ParticipantType participantType;
-
-        try {
-            participantType = ParticipantType.valueOf(request.participantType().trim().toUpperCase());
-        } catch (IllegalArgumentException ex) {
-            log.warn("Bad participant type {}", request.participantType());
-            throw HttpException.badRequest("invalid participant type");
-        }
+    public CompletionStage<HttpResponse> markAvailable(String slotId, AvailabilityRequest request) {
+        var participantType = parseParticipantType(request);
 
         log.info("Marking timeslot available for entity {}", slotId);
 
         var participant = new Participant(request.participantId, participantType);
-        componentClient
+        var call = metrics.time("markSlotAvailable", componentClient
             .forEventSourcedEntity(slotId)
             .method(BookingSlotEntity::markSlotAvailable)
-            .invoke(new BookingSlotEntity.Command.MarkSlotAvailable(participant));
+            .invokeAsync(new BookingSlotEntity.Command.MarkSlotAvailable(participant)));
 
-        return HttpResponses.ok();
+        return respond(slotId, call, HttpResponses.ok());
     }
 
     // Unmarks a slot as available for the given participant.
     @Delete("/availability/{slotId}")
-    public HttpResponse unmarkAvailable(String slotId, AvailabilityRequest request) {
-        ParticipantType participantType;
-        try {
-            participantType = ParticipantType.valueOf(request.participantType().trim().toUpperCase());
-        } catch (IllegalArgumentException ex) {
-            log.warn("Bad participant type {}", request.participantType());
-            throw HttpException.badRequest("invalid participant type");
-        }
+    public CompletionStage<HttpResponse> unmarkAvailable(String slotId, AvailabilityRequest request) {
+        var participantType = parseParticipantType(request);
 
         log.info("Marking timeslot unavailable for entity {}", slotId);
 
         var participant = new Participant(request.participantId, participantType);
-        componentClient
+        var call = metrics.time("unmarkSlotAvailable", componentClient
             .forEventSourcedEntity(slotId)
             .method(BookingSlotEntity::unmarkSlotAvailable)
-            .invoke(new BookingSlotEntity.Command.UnmarkSlotAvailable(participant));
+            .invokeAsync(new BookingSlotEntity.Command.UnmarkSlotAvailable(participant)));
 
-        return HttpResponses.ok();
+        return respond(slotId, call, HttpResponses.ok());
+    }
+
+    // Marks many (slot, participant) pairs available in one request, running
+    // the slot commands concurrently with bounded parallelism. Every item gets
+    // its own result, so a conflict on one slot doesn't fail the rest.
+    @Post("/availability")
+    public CompletionStage<BatchAvailabilityResponse> markAvailableBatch(BatchAvailabilityRequest request) {
+        return applyBatch(request, true);
+    }
+
+    // Unmarks many (slot, participant) pairs in one request, as above
+    @Delete("/availability")
+    public CompletionStage<BatchAvailabilityResponse> unmarkAvailableBatch(BatchAvailabilityRequest request) {
+        return applyBatch(request, false);
+    }
+
+    private CompletionStage<BatchAvailabilityResponse> applyBatch(BatchAvailabilityRequest request, boolean mark) {
+        if (request.items() == null || request.items().isEmpty()) {
+            throw HttpException.badRequest("no availability items");
+        }
+        if (request.items().size() > MAX_BATCH_SIZE) {
+            throw HttpException.badRequest("at most " + MAX_BATCH_SIZE + " availability items per request");
+        }
+
+        log.info("{} {} availability items", mark ? "Marking" : "Unmarking", request.items().size());
+
+        // Items for the same slot go to that slot as a single batch command, so a
+        // hot slot costs one command and one persist per request rather than one
+        // per item
+        var items = request.items();
+        var results = new BatchItemResult[items.size()];
+        var itemsBySlot = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            if (item.slotId() == null || item.participantId() == null
+                || parseParticipantType(item.participantType()).isEmpty()) {
+                results[i] = BatchItemResult.of(item, BatchItemResult.INVALID, "invalid item");
+            } else {
+                itemsBySlot.computeIfAbsent(item.slotId(), slotId -> new ArrayList<>()).add(i);
+            }
+        }
+
+        return BoundedParallelism
+            .run(List.copyOf(itemsBySlot.entrySet()), batchParallelism,
+                slotItems -> applySlotAvailability(slotItems.getKey(), slotItems.getValue(), items, mark))
+            .thenApply(slotResults -> {
+                slotResults.forEach(indexed -> indexed.forEach((index, result) -> results[index] = result));
+                return new BatchAvailabilityResponse(List.of(results));
+            });
+    }
+
+    // Applies the items at `indices`, which all belong to `slotId`, and returns
+    // their results by index
+    private CompletionStage<Map<Integer, BatchItemResult>> applySlotAvailability(
+        String slotId, List<Integer> indices, List<BatchAvailabilityItem> items, boolean mark
+    ) {
+        var participants = indices.stream()
+            .map(items::get)
+            .map(item -> new Participant(item.participantId(), parseParticipantType(item.participantType()).get()))
+            .toList();
+        var slot = componentClient.forEventSourcedEntity(slotId);
+        var command = mark ? "markSlotsAvailable" : "unmarkSlotsAvailable";
+        CompletionStage<BookingSlotEntity.BatchResult> call = metrics.time(command, mark
+            ? slot.method(BookingSlotEntity::markSlotsAvailable)
+                .invokeAsync(new BookingSlotEntity.Command.MarkSlotsAvailable(participants))
+            : slot.method(BookingSlotEntity::unmarkSlotsAvailable)
+                .invokeAsync(new BookingSlotEntity.Command.UnmarkSlotsAvailable(participants)));
+
+        return call.handle((batch, error) -> {
+            var results = new HashMap<Integer, BatchItemResult>();
+            if (error == null) {
+                slotCache.invalidate(slotId);
+                for (int i = 0; i < indices.size(); i++) {
+                    var item = items.get(indices.get(i));
+                    var outcome = batch.outcomes().get(i);
+                    if (!outcome.applied()) {
+                        metrics.rejected(command, outcome.reason());
+                    }
+                    results.put(indices.get(i), outcome.applied()
+                        ? BatchItemResult.of(item, BatchItemResult.OK, "")
+                        : BatchItemResult.of(item, BatchItemResult.REJECTED, outcome.reason()));
+                }
+                return results;
+            }
+            var cause = unwrap(error);
+            log.warn("Availability update failed for slot {}", slotId, cause);
+            for (var index : indices) {
+                results.put(index, BatchItemResult.of(items.get(index), BatchItemResult.FAILED, String.valueOf(cause.getMessage())));
+            }
+            return results;
+        });
+    }
+
+    // Plans the requested lessons over the slots starting within [from, to), at
+    // most a week, from the availability in SlotAvailabilityView, and books the
+    // plan one lesson at a time through BookingSlotEntity::bookSlot with bounded
+    // parallelism. See WeeklyScheduler for how lessons are placed. A lesson whose
+    // participants are no longer available by the time it is booked is reported
+    // as rejected; the rest of the plan is still booked. With `dryRun`, returns
+    // the plan without booking it.
+    @Post("/schedules")
+    public CompletionStage<ScheduleResponse> schedule(ScheduleRequest request) {
+        var from = SlotTime.parse(request.from())
+            .orElseThrow(() -> HttpException.badRequest("invalid time for from: " + request.from()));
+        var to = SlotTime.parse(request.to())
+            .orElseThrow(() -> HttpException.badRequest("invalid time for to: " + request.to()));
+        if (!from.isBefore(to) || Duration.between(from, to).compareTo(MAX_SCHEDULE_RANGE) > 0) {
+            throw HttpException.badRequest("a schedule covers at most " + MAX_SCHEDULE_RANGE.toDays() + " days");
+        }
+        if (request.lessons() == null || request.lessons().isEmpty()) {
+            throw HttpException.badRequest("no lessons requested");
+        }
+        var lessonCount = 0;
+        for (var lesson : request.lessons()) {
+            if (lesson.studentId() == null || lesson.lessons() < 1) {
+                throw HttpException.badRequest("every lesson request needs a studentId and at least one lesson");
+            }
+            lessonCount += lesson.lessons();
+        }
+        if (lessonCount > MAX_SCHEDULE_LESSONS) {
+            throw HttpException.badRequest("at most " + MAX_SCHEDULE_LESSONS + " lessons per schedule");
+        }
+        var maxLessonsPerDay = request.maxLessonsPerDay() == null ? 1 : request.maxLessonsPerDay();
+        if (maxLessonsPerDay < 1) {
+            throw HttpException.badRequest("maxLessonsPerDay must be at least 1");
+        }
+
+        return componentClient
+            .forView()
+            .method(SlotAvailabilityView::getAvailabilityInRange)
+            .invokeAsync(new SlotAvailabilityView.RangeInput(from, to))
+            .thenApply(availability -> WeeklyScheduler.plan(
+                availability.slots().stream()
+                    .map(row -> new WeeklyScheduler.SlotAvailability(
+                        row.slotId(), row.students(), row.instructors(), row.aircraft()))
+                    .toList(),
+                request.lessons(),
+                maxLessonsPerDay))
+            .thenCompose(plan -> {
+                log.info("Planned {} lessons from {} to {}, {} students short",
+                    plan.lessons().size(), from, to, plan.unscheduled().size());
+                if (request.dryRun()) {
+                    var planned = plan.lessons().stream()
+                        .map(lesson -> ScheduledLesson.of(lesson, null, ScheduledLesson.PLANNED, ""))
+                        .toList();
+                    return CompletableFuture.completedFuture(new ScheduleResponse(planned, plan.unscheduled()));
+                }
+                return BoundedParallelism
+                    .run(plan.lessons(), batchParallelism, this::bookLesson)
+                    .thenApply(booked -> new ScheduleResponse(booked, plan.unscheduled()));
+            });
+    }
+
+    private CompletionStage<ScheduledLesson> bookLesson(WeeklyScheduler.Lesson lesson) {
+        var bookingId = UUID.randomUUID().toString();
+        return metrics.time("bookSlot", componentClient
+                .forEventSourcedEntity(lesson.slotId())
+                .method(BookingSlotEntity::bookSlot)
+                .invokeAsync(new BookingSlotEntity.Command.BookReservation(
+                    lesson.studentId(), lesson.aircraftId(), lesson.instructorId(), bookingId
+                )))
+            .handle((done, error) -> {
+                if (error == null) {
+                    slotCache.invalidate(lesson.slotId());
+                    return ScheduledLesson.of(lesson, bookingId, ScheduledLesson.BOOKED, "");
+                }
+                var cause = unwrap(error);
+                if (cause instanceof CommandException rejected) {
+                    return ScheduledLesson.of(lesson, null, ScheduledLesson.REJECTED, rejected.getMessage());
+                }
+                log.warn("Booking a scheduled lesson in slot {} failed", lesson.slotId(), cause);
+                return ScheduledLesson.of(lesson, null, ScheduledLesson.FAILED, String.valueOf(cause.getMessage()));
+            });
+    }
+
+    // A block is 2 to MAX_BLOCK_SIZE slots whose IDs follow the date
+    // convention and start one hour after another
+    private static void validateBlock(List<String> slotIds) {
+        if (slotIds == null || slotIds.size() < 2 || slotIds.size() > MAX_BLOCK_SIZE) {
+            throw HttpException.badRequest("a block has between 2 and " + MAX_BLOCK_SIZE + " slots");
+        }
+        Instant previous = null;
+        for (var slotId : slotIds) {
+            var start = SlotTime.startOf(slotId)
+                .orElseThrow(() -> HttpException.badRequest("invalid slot ID " + slotId));
+            if (previous != null && !start.equals(previous.plus(Duration.ofHours(1)))) {
+                throw HttpException.badRequest("slots must be consecutive");
+            }
+            previous = start;
+        }
+    }
+
+    private ParticipantType parseParticipantType(AvailabilityRequest request) {
+        return parseParticipantType(request.participantType()).orElseThrow(() -> {
+            log.warn("Bad participant type {}", request.participantType());
+            return HttpException.badRequest("invalid participant type");
+        });
+    }
+
+    private static Optional<ParticipantType> parseParticipantType(String participantType) {
+        try {
+            return Optional.of(ParticipantType.valueOf(participantType.trim().toUpperCase()));
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // Event streams resume from the ID of the last event a client received,
+    // which browsers send as `Last-Event-ID` on reconnect, or from an explicit
+    // `since` query parameter. Both are event timestamps. Changes at exactly the
+    // offset are sent again, so clients should treat events as idempotent.
+    // Without either, the stream starts with the full current state.
+    private Instant resumeOffset() {
+        var offset = requestContext().requestHeader("Last-Event-ID")
+            .map(HttpHeader::value)
+            .or(() -> requestContext().queryParams().getString("since"));
+        try {
+            return offset.map(Instant::parse).orElse(Instant.EPOCH);
+        } catch (DateTimeParseException e) {
+            throw HttpException.badRequest("invalid resume offset " + offset.get());
+        }
+    }
+
+    // Replaces the indexed slots in [from, to) with their rows in
+    // SlotAvailabilityView, only those changed since `changedSince` if it is set
+    private CompletionStage<Void> loadBookableIndex(Instant from, Instant to, Instant changedSince) {
+        var view = componentClient.forView();
+        var rows = changedSince == null
+            ? view.method(SlotAvailabilityView::getAvailabilityInRange)
+                .invokeAsync(new SlotAvailabilityView.RangeInput(from, to))
+            : view.method(SlotAvailabilityView::getAvailabilityChangedInRange)
+                .invokeAsync(new SlotAvailabilityView.ChangedRangeInput(from, to, changedSince));
+        return rows
+            .thenAccept(result -> result.slots().forEach(row -> {
+                var participants = new ArrayList<Participant>();
+                for (var type : ParticipantType.values()) {
+                    row.available(type).forEach(id -> participants.add(new Participant(id, type)));
+                }
+                bookableIndex.replaceSlot(row.slotId(), participants);
+            }));
+    }
+
+    private Instant requiredTimeParam(String name) {
+        var value = requestContext().queryParams().getString(name)
+            .orElseThrow(() -> HttpException.badRequest("missing query parameter " + name));
+        return SlotTime.parse(value)
+            .orElseThrow(() -> HttpException.badRequest("invalid time for " + name + ": " + value));
+    }
+
+    // Completes with the given response once the entity accepts the command.
+    // Commands the entity rejects (e.g. "reservation is not bookable") become a
+    // 400 carrying the entity's message; any other failure is passed through.
+    // A successful command also drops the slot from the cache so the caller
+    // reads its own write without waiting for the invalidation event.
+    private CompletionStage<HttpResponse> respond(String slotId, CompletionStage<Done> call, HttpResponse onSuccess) {
+        return call.handle((done, error) -> {
+            if (error == null) {
+                slotCache.invalidate(slotId);
+                return onSuccess;
+            }
+            if (unwrap(error) instanceof CommandException rejected) {
+                return HttpResponses.badRequest(rejected.getMessage());
+            }
+            throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+        });
+    }
+
+    public record MetricsResponse(FlightMetrics.Snapshot metrics, SlotCache.Stats availabilityCache) {
+    }
+
+    // Slots in start order
+    public record BookableSlots(List<BookableIndex.Match> slots) {
+    }
+
+    // Public API representation of a waitlist request; `bookingId` is optional
+    public record WaitlistRequest(String studentId, String aircraftId, String instructorId, String bookingId) {
+    }
+
+    // Public API representation of a slot: its bookings, one per participant,
+    // and its available participants. Timeslot's own JSON is the compact form
+    // BookingSlotEntity snapshots, see Timeslot.
+    public record SlotResponse(Collection<Timeslot.Booking> bookings, Set<Participant> available) {
+        public static SlotResponse of(Timeslot slot) {
+            return new SlotResponse(slot.bookings(), slot.available());
+        }
     }
 
     // Public API representation of a booking request
@@ -135,7 +770,83 @@ public class FlightEndpoint extends AbstractHttpEndpoint {
     ) {
     }
 
+    // Public API representation of a block booking request. `slotIds` are
+    // consecutive slots in start order.
+    public record BlockBookingRequest(
+        String bookingId, List<String> slotIds, String studentId, String aircraftId, String instructorId
+    ) {
+    }
+
+    // Public API representation of a scheduling request. `maxLessonsPerDay`
+    // defaults to 1.
+    public record ScheduleRequest(
+        String from,
+        String to,
+        List<WeeklyScheduler.LessonRequest> lessons,
+        Integer maxLessonsPerDay,
+        boolean dryRun
+    ) {
+    }
+
+    // `unscheduled` counts the requested lessons per student that didn't fit
+    public record ScheduleResponse(List<ScheduledLesson> lessons, Map<String, Integer> unscheduled) {
+    }
+
+    // A planned lesson and what became of it: `planned` (dry run), `booked`
+    // with its booking ID, `rejected` by the slot or `failed` to reach it.
+    // `message` explains anything other than `planned` or `booked`.
+    public record ScheduledLesson(
+        String slotId,
+        String studentId,
+        String instructorId,
+        String aircraftId,
+        String bookingId,
+        String status,
+        String message
+    ) {
+        static final String PLANNED = "planned";
+        static final String BOOKED = "booked";
+        static final String REJECTED = "rejected";
+        static final String FAILED = "failed";
+
+        static ScheduledLesson of(WeeklyScheduler.Lesson lesson, String bookingId, String status, String message) {
+            return new ScheduledLesson(
+                lesson.slotId(),
+                lesson.studentId(),
+                lesson.instructorId(),
+                lesson.aircraftId(),
+                bookingId,
+                status,
+                message
+            );
+        }
+    }
+
     // Public API representation of an availability mark/unmark request
     public record AvailabilityRequest(String participantId, String participantType) {
     }
+
+    // Public API representation of a batch of availability marks/unmarks
+    public record BatchAvailabilityRequest(List<BatchAvailabilityItem> items) {
+    }
+
+    public record BatchAvailabilityItem(String slotId, String participantId, String participantType) {
+    }
+
+    public record BatchAvailabilityResponse(List<BatchItemResult> results) {
+    }
+
+    // The outcome of one batch item: `ok`, `rejected` by the slot (e.g.
+    // "participant already available"), `invalid` input, or `failed` to reach
+    // the slot. `message` explains anything other than `ok`.
+    public record BatchItemResult(String slotId, String participantId, String status, String message) {
+        static final String OK = "ok";
+        static final String REJECTED = "rejected";
+        static final String INVALID = "invalid";
+        static final String FAILED = "failed";
+
+        static BatchItemResult of(BatchAvailabilityItem item, String status, String message) {
+            return new BatchItemResult(item.slotId(), item.participantId(), status, message);
+        }
+    }
 }
@@ -0,0 +1,241 @@
+package io.example.application;
+
+import akka.Done;
+import akka.javasdk.CommandException;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.workflow.Workflow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import static akka.javasdk.workflow.Workflow.RecoverStrategy.maxRetries;
+
+// Books a block of consecutive slots for the same student, aircraft and
+// instructor, all under one booking ID. Every slot is booked concurrently; if
+// any of them can't be booked, the block is compensated by canceling the
+// booking on every slot that booked it or may have, so a block is either
+// booked in full or not at all. The workflow ID is the booking ID.
+@ComponentId("block-booking")
+public class BlockBookingWorkflow extends Workflow<BlockBookingWorkflow.State> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockBookingWorkflow.class);
+
+    public static final String BOOKING = "BOOKING";
+    public static final String BOOKED = "BOOKED";
+    public static final String COMPENSATING = "COMPENSATING";
+    public static final String FAILED = "FAILED";
+    public static final String COMPENSATION_FAILED = "COMPENSATION_FAILED";
+
+    private final ComponentClient componentClient;
+
+    public BlockBookingWorkflow(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    @Override
+    public WorkflowDef<State> definition() {
+        // Rejections and failures are collected per slot rather than thrown. If
+        // the step is retried anyway, e.g. after a timeout or a crash, slots that
+        // already hold the block's booking acknowledge it again, so they are still
+        // reported as booked and compensated if the block fails
+        var bookSlots = step("book-slots")
+            .call(Command.BookBlock.class, this::bookAll)
+            .andThen(SlotResults.class, results -> {
+                if (results.failures().isEmpty()) {
+                    var booked = currentState().completed(BOOKED, null);
+                    logger.info("Block {} booked in {} ms", booked.bookingId(), booked.latencyMillis());
+                    return effects().updateState(booked).end();
+                }
+                var compensating = currentState().compensating(results);
+                if (compensating.compensate().isEmpty()) {
+                    var failed = compensating.completed(FAILED, compensating.reason());
+                    logger.info("Block {} not bookable, no slot booked: {}", failed.bookingId(), results);
+                    return effects().updateState(failed).end();
+                }
+                logger.info("Block {} not bookable, compensating {}: {}",
+                    compensating.bookingId(), compensating.compensate(), results);
+                return effects().updateState(compensating).transitionTo("cancel-slots");
+            });
+
+        // Canceling is idempotent, so this step is retried until every slot to
+        // compensate is free of the booking, or handed over for manual cleanup
+        var cancelSlots = step("cancel-slots")
+            .call(this::cancelAll)
+            .andThen(Done.class, done -> {
+                var failed = currentState().completed(FAILED, currentState().reason());
+                logger.info("Block {} compensated in {} ms", failed.bookingId(), failed.latencyMillis());
+                return effects().updateState(failed).end();
+            });
+
+        var compensationFailed = step("compensation-failed")
+            .call(() -> Done.done())
+            .andThen(Done.class, done -> {
+                logger.error("Block {} could not be compensated, slots {} need cleanup",
+                    currentState().bookingId(), currentState().compensate());
+                return effects()
+                    .updateState(currentState().completed(COMPENSATION_FAILED, currentState().reason()))
+                    .end();
+            });
+
+        return workflow()
+            .defaultStepTimeout(Duration.ofSeconds(10))
+            .addStep(bookSlots)
+            .addStep(cancelSlots, maxRetries(10).failoverTo("compensation-failed"))
+            .addStep(compensationFailed);
+    }
+
+    public Effect<Done> book(Command.BookBlock cmd) {
+        if (currentState() != null) {
+            return effects().error("block booking already exists");
+        }
+        if (cmd.slotIds() == null || cmd.slotIds().isEmpty()) {
+            return effects().error("no slots to book");
+        }
+
+        var state = new State(
+            cmd.bookingId(),
+            List.copyOf(cmd.slotIds()),
+            BOOKING,
+            List.of(),
+            List.of(),
+            null,
+            Instant.now(),
+            null
+        );
+        return effects()
+            .updateState(state)
+            .transitionTo("book-slots", cmd)
+            .thenReply(Done.done());
+    }
+
+    public ReadOnlyEffect<State> getBlock() {
+        if (currentState() == null) {
+            return effects().error("block booking not found");
+        }
+        return effects().reply(currentState());
+    }
+
+    SlotResults bookAll(Command.BookBlock cmd) {
+        var results = cmd.slotIds().stream()
+            .map(slotId -> bookOne(slotId, cmd).toCompletableFuture())
+            .toList();
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+
+        var booked = new ArrayList<String>();
+        var failures = new ArrayList<SlotFailure>();
+        for (int i = 0; i < results.size(); i++) {
+            var failure = results.get(i).join();
+            if (failure == null) {
+                booked.add(cmd.slotIds().get(i));
+            } else {
+                failures.add(failure);
+            }
+        }
+        return new SlotResults(booked, failures);
+    }
+
+    // Completes with null when the slot was booked. A rejection by the slot
+    // means it wasn't booked; after any other error, such as a timeout, it
+    // may have been.
+    private CompletionStage<SlotFailure> bookOne(String slotId, Command.BookBlock cmd) {
+        return componentClient
+            .forEventSourcedEntity(slotId)
+            .method(BookingSlotEntity::bookSlot)
+            .invokeAsync(new BookingSlotEntity.Command.BookReservation(
+                cmd.studentId(),
+                cmd.aircraftId(),
+                cmd.instructorId(),
+                cmd.bookingId()
+            ))
+            .handle((done, error) -> {
+                if (error == null) {
+                    return null;
+                }
+                var cause = unwrap(error);
+                return new SlotFailure(slotId, String.valueOf(cause.getMessage()), cause instanceof CommandException);
+            });
+    }
+
+    // Cancels the booking on the slots that booked it and on those whose
+    // outcome is unknown. Slots that turn out not to have the booking reject
+    // the cancel, which is fine here.
+    private Done cancelAll() {
+        var bookingId = currentState().bookingId();
+        var cancels = currentState().compensate().stream()
+            .map(slotId -> componentClient
+                .forEventSourcedEntity(slotId)
+                .method(BookingSlotEntity::cancelBooking)
+                .invokeAsync(bookingId)
+                .exceptionally(error -> {
+                    if (unwrap(error) instanceof CommandException) {
+                        return Done.done();
+                    }
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+                })
+                .toCompletableFuture())
+            .toList();
+        CompletableFuture.allOf(cancels.toArray(CompletableFuture[]::new)).join();
+        return Done.done();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // `compensate` holds the slots whose booking is canceled when the block
+    // fails: those that booked it and those that may have. `latencyMillis` is
+    // the time from the request to booking or compensating the whole block,
+    // null while it is still in progress
+    public record State(
+        String bookingId,
+        List<String> slotIds,
+        String status,
+        List<SlotFailure> failures,
+        List<String> compensate,
+        String reason,
+        Instant startedAt,
+        Long latencyMillis
+    ) {
+
+        State compensating(SlotResults results) {
+            var compensate = new ArrayList<>(results.booked());
+            results.failures().stream()
+                .filter(failure -> !failure.rejected())
+                .forEach(failure -> compensate.add(failure.slotId()));
+            var reason = results.failures().stream()
+                .map(failure -> failure.slotId() + ": " + failure.reason())
+                .reduce((a, b) -> a + "; " + b)
+                .orElse(null);
+            return new State(
+                bookingId, slotIds, COMPENSATING, results.failures(), List.copyOf(compensate), reason, startedAt, null
+            );
+        }
+
+        State completed(String status, String reason) {
+            var latency = Duration.between(startedAt, Instant.now()).toMillis();
+            return new State(bookingId, slotIds, status, failures, compensate, reason, startedAt, latency);
+        }
+    }
+
+    // `rejected` when the slot refused the booking, so it certainly wasn't booked
+    public record SlotFailure(String slotId, String reason, boolean rejected) {
+    }
+
+    public record SlotResults(List<String> booked, List<SlotFailure> failures) {
+    }
+
+    public sealed interface Command {
+        record BookBlock(
+            String bookingId, List<String> slotIds, String studentId, String aircraftId, String instructorId
+        ) implements Command {
+        }
+    }
+}
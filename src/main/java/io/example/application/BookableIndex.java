@@ -0,0 +1,318 @@
+package io.example.application;
+
+import io.example.domain.BookingEvent;
+import io.example.domain.Participant;
+import io.example.domain.Participant.ParticipantType;
+import io.example.domain.SlotTime;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+// An in-process index of who is available in which slot, behind
+// GET /flight/bookable/{studentId}. It answers "the earliest slots in which this
+// student could book with any (or a given) instructor and aircraft" without
+// reading any Timeslot.
+//
+// Only slots whose IDs follow the `2025-08-08-09` convention are indexed, and
+// only those starting within `horizon` of the index's base hour. The base moves
+// forward with time (see `windowBase`), dropping the slots that have passed. Each
+// indexed slot has an ordinal, its hour offset from the base, so slot IDs and
+// ordinals convert into each other. Every participant
+// has a bitset of the slots it is available in, and per type there is a bitset
+// of the slots where anyone of that type is available, maintained from per-slot
+// counts. Each slot also keeps its set of available participants so that it can
+// be cleared without visiting every participant. A search walks the student's
+// bits from the first candidate slot and tests the instructor and aircraft bits
+// of each, so its cost is bounded by the number of slots the student is
+// available in.
+//
+// The index is updated from the booking slot events this instance sees (see
+// BookableIndexUpdater) and refreshed per slot from SlotAvailabilityView: in full
+// when it is first used, then every `refresh-interval` with only the slots that
+// changed since and those the window has moved over. In a multi-node deployment
+// the updater only sees the events of the slices it owns, so the refresh is what
+// bounds staleness for the others. A stale result is only ever a suggestion:
+// booking it still goes through BookingSlotEntity.
+public final class BookableIndex {
+
+    private static final DateTimeFormatter SLOT_ID_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd-HH");
+
+    // How far before now the window starts, so that slots in progress in any
+    // time zone are indexed
+    private static final Duration LOOKBACK = Duration.ofDays(1);
+
+    private final int slotCount;
+    private final long refreshNanos;
+    private final Map<Participant, BitSet> available = new HashMap<>();
+    private final Set<Participant>[] members;
+    private final Map<ParticipantType, int[]> counts = new EnumMap<>(ParticipantType.class);
+    private final Map<ParticipantType, BitSet> anyAvailable = new EnumMap<>(ParticipantType.class);
+
+    private Instant base;
+    private long refreshedAt;
+    private boolean loaded;
+    private CompletableFuture<Void> loading;
+    // When the last successful load started, and the ordinal from which slots
+    // haven't been loaded since they entered the window
+    private Instant loadStartedAt;
+    private int unloadedFrom;
+
+    public record Match(String slotId, Instant startsAt) {
+    }
+
+    // Loads the rows of the slots starting within [from, to) into the index with
+    // `replaceSlot`. When `changedSince` is set, only the slots whose rows changed
+    // at or after it are needed.
+    public interface Loader {
+        CompletionStage<Void> load(Instant from, Instant to, Instant changedSince);
+    }
+
+    @SuppressWarnings("unchecked")
+    public BookableIndex(Instant base, Duration horizon, Duration refreshInterval) {
+        this.base = base.truncatedTo(ChronoUnit.HOURS);
+        this.slotCount = Math.toIntExact(horizon.toHours());
+        this.refreshNanos = refreshInterval.toNanos();
+        this.members = new Set[slotCount];
+        for (var type : ParticipantType.values()) {
+            counts.put(type, new int[slotCount]);
+            anyAvailable.put(type, new BitSet(slotCount));
+        }
+    }
+
+    // The base of a window that is current at `now`
+    public static Instant windowBase(Instant now) {
+        return now.minus(LOOKBACK);
+    }
+
+    public synchronized Instant base() {
+        return base;
+    }
+
+    public synchronized Instant end() {
+        return start(slotCount);
+    }
+
+    public synchronized void apply(BookingEvent event) {
+        switch (event) {
+            case BookingEvent.ParticipantMarkedAvailable marked ->
+                set(marked.slotId(), Participant.of(marked.participantId(), marked.participantType()), true);
+            case BookingEvent.ParticipantUnmarkedAvailable unmarked ->
+                set(unmarked.slotId(), new Participant(unmarked.participantId(), unmarked.participantType()), false);
+            case BookingEvent.ReservationBooked booked -> {
+                set(booked.slotId(), new Participant(booked.studentId(), ParticipantType.STUDENT), false);
+                set(booked.slotId(), new Participant(booked.instructorId(), ParticipantType.INSTRUCTOR), false);
+                set(booked.slotId(), new Participant(booked.aircraftId(), ParticipantType.AIRCRAFT), false);
+            }
+            case BookingEvent.ParticipantBooked booked ->
+                set(booked.slotId(), new Participant(booked.participantId(), booked.participantType()), false);
+            case BookingEvent.SlotArchived archived -> {
+                var slot = ordinal(archived.slotId());
+                if (slot >= 0) {
+                    clear(slot);
+                }
+            }
+            // Canceling doesn't make the participants available again
+            case BookingEvent.ReservationCanceled canceled -> {
+            }
+            case BookingEvent.ParticipantCanceled canceled -> {
+            }
+        }
+    }
+
+    // Replaces everything known about the slot with the participants available
+    // in it
+    public synchronized void replaceSlot(String slotId, Collection<Participant> participants) {
+        var slot = ordinal(slotId);
+        if (slot < 0) {
+            return;
+        }
+        clear(slot);
+        participants.forEach(participant -> set(slot, participant.intern(), true));
+    }
+
+    // The earliest `limit` slots starting at or after `from` in which the student
+    // is available together with the given instructor and aircraft, or any
+    // instructor or aircraft when they are null. `Timeslot.isBookable` holds in
+    // exactly those slots as of the last update the index has seen.
+    public synchronized List<Match> search(
+        String studentId, String instructorId, String aircraftId, Instant from, int limit
+    ) {
+        var student = available.get(new Participant(studentId, ParticipantType.STUDENT));
+        var instructors = bits(ParticipantType.INSTRUCTOR, instructorId);
+        var aircraft = bits(ParticipantType.AIRCRAFT, aircraftId);
+        var matches = new ArrayList<Match>();
+        if (student == null || instructors == null || aircraft == null) {
+            return matches;
+        }
+
+        for (int slot = student.nextSetBit(firstSlotFrom(from));
+             slot >= 0 && matches.size() < limit;
+             slot = student.nextSetBit(slot + 1)) {
+            if (instructors.get(slot) && aircraft.get(slot)) {
+                var startsAt = start(slot);
+                matches.add(new Match(slotId(startsAt), startsAt));
+            }
+        }
+        return matches;
+    }
+
+    // Refreshes the index if it has never been loaded or was last loaded more
+    // than the refresh interval ago, unless a load is already running. A refresh
+    // first moves the window forward to `newBase`, then loads the slots that changed
+    // since the previous load started, less one refresh interval to allow for
+    // view lag, and every slot that entered the window since it was last loaded.
+    // Completes once the index has been loaded at least once, so only the first
+    // searches wait for a load.
+    public synchronized CompletionStage<Void> refresh(Instant newBase, Loader loader) {
+        var due = !loaded || System.nanoTime() - refreshedAt >= refreshNanos;
+        if (due && loading == null) {
+            var attempt = new CompletableFuture<Void>();
+            loading = attempt;
+            var startedAt = Instant.now();
+            slideTo(newBase);
+            var changed = loaded && unloadedFrom > 0
+                ? loader.load(base, start(unloadedFrom), loadStartedAt.minusNanos(refreshNanos))
+                : CompletableFuture.<Void>completedFuture(null);
+            var entered = unloadedFrom < slotCount
+                ? loader.load(start(unloadedFrom), end(), null)
+                : CompletableFuture.<Void>completedFuture(null);
+            changed.thenCombine(entered, (a, b) -> (Void) null).whenComplete((done, error) -> {
+                synchronized (this) {
+                    loading = null;
+                    if (error == null) {
+                        loaded = true;
+                        refreshedAt = System.nanoTime();
+                        loadStartedAt = startedAt;
+                        unloadedFrom = slotCount;
+                    }
+                }
+                if (error == null) {
+                    attempt.complete(null);
+                } else {
+                    attempt.completeExceptionally(error);
+                }
+            });
+            if (!loaded) {
+                return attempt;
+            }
+        }
+        return loaded ? CompletableFuture.completedFuture(null) : loading;
+    }
+
+    // Moves the base forward to the hour of `newBase`, dropping the slots before
+    // it. Slots entering the window at the end start out empty and unloaded.
+    private void slideTo(Instant newBase) {
+        var hours = ChronoUnit.HOURS.between(base, newBase.truncatedTo(ChronoUnit.HOURS));
+        if (hours <= 0) {
+            return;
+        }
+        int shift = (int) Math.min(hours, slotCount);
+        available.replaceAll((participant, bits) -> bits.get(shift, slotCount));
+        available.values().removeIf(BitSet::isEmpty);
+        System.arraycopy(members, shift, members, 0, slotCount - shift);
+        Arrays.fill(members, slotCount - shift, slotCount, null);
+        for (var type : ParticipantType.values()) {
+            var typeCounts = counts.get(type);
+            System.arraycopy(typeCounts, shift, typeCounts, 0, slotCount - shift);
+            Arrays.fill(typeCounts, slotCount - shift, slotCount, 0);
+            anyAvailable.put(type, anyAvailable.get(type).get(shift, slotCount));
+        }
+        base = base.plus(Duration.ofHours(hours));
+        unloadedFrom = Math.min(Math.max(unloadedFrom - shift, 0), slotCount - shift);
+    }
+
+    private Instant start(int slot) {
+        return base.plus(Duration.ofHours(slot));
+    }
+
+    private BitSet bits(ParticipantType type, String participantId) {
+        if (participantId == null) {
+            return anyAvailable.get(type);
+        }
+        return available.get(new Participant(participantId, type));
+    }
+
+    private void set(String slotId, Participant participant, boolean isAvailable) {
+        var slot = ordinal(slotId);
+        if (slot >= 0) {
+            set(slot, participant, isAvailable);
+        }
+    }
+
+    private void set(int slot, Participant participant, boolean isAvailable) {
+        var type = participant.participantType();
+        var bits = available.get(participant);
+        if (isAvailable) {
+            if (bits == null) {
+                bits = new BitSet(slotCount);
+                available.put(participant, bits);
+            }
+            if (!bits.get(slot)) {
+                bits.set(slot);
+                if (members[slot] == null) {
+                    members[slot] = new HashSet<>();
+                }
+                members[slot].add(participant);
+                counts.get(type)[slot]++;
+                anyAvailable.get(type).set(slot);
+            }
+        } else if (bits != null && bits.get(slot)) {
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                available.remove(participant);
+            }
+            members[slot].remove(participant);
+            if (--counts.get(type)[slot] == 0) {
+                anyAvailable.get(type).clear(slot);
+            }
+        }
+    }
+
+    private void clear(int slot) {
+        if (members[slot] == null) {
+            return;
+        }
+        for (var participant : List.copyOf(members[slot])) {
+            set(slot, participant, false);
+        }
+        members[slot] = null;
+    }
+
+    // The slot's offset in hours from the base, or -1 if it isn't indexed
+    private int ordinal(String slotId) {
+        return SlotTime.startOf(slotId)
+            .map(startsAt -> ChronoUnit.HOURS.between(base, startsAt))
+            .filter(hours -> hours >= 0 && hours < slotCount)
+            .map(Long::intValue)
+            .orElse(-1);
+    }
+
+    // The ordinal of the first slot starting at or after `from`
+    private int firstSlotFrom(Instant from) {
+        if (!from.isAfter(base)) {
+            return 0;
+        }
+        var hours = Duration.between(base, from.plusNanos(Duration.ofHours(1).toNanos() - 1)).toHours();
+        return (int) Math.min(hours, slotCount);
+    }
+
+    private static String slotId(Instant startsAt) {
+        return LocalDateTime.ofInstant(startsAt, ZoneOffset.UTC).format(SLOT_ID_FORMAT);
+    }
+}
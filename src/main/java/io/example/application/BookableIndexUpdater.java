@@ -0,0 +1,29 @@
+package io.example.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import io.example.domain.BookingEvent;
+
+// Keeps the BookableIndex up to date with the booking slot events of the slices
+// this instance owns. It resumes from its stored offset after a restart, so the
+// events it saw before are recovered by the index's first load from
+// SlotAvailabilityView instead.
+@ComponentId("bookable-index-updater")
+@Consume.FromEventSourcedEntity(BookingSlotEntity.class)
+public class BookableIndexUpdater extends Consumer {
+
+    private final BookableIndex index;
+    private final FlightMetrics metrics;
+
+    public BookableIndexUpdater(BookableIndex index, FlightMetrics metrics) {
+        this.index = index;
+        this.metrics = metrics;
+    }
+
+    public Effect onEvent(BookingEvent event) {
+        index.apply(event);
+        metrics.projected("bookable-index-updater", ParticipantSlotsView.eventTime(messageContext().metadata()));
+        return effects().done();
+    }
+}
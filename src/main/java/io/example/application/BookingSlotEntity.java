@@ -6,12 +6,15 @@ import akka.javasdk.eventsourcedentity.EventSourcedEntity;
 import akka.javasdk.eventsourcedentity.EventSourcedEntityContext;
 import io.example.domain.BookingEvent;
 import io.example.domain.Participant;
+import io.example.domain.SlotTime;
 import io.example.domain.Timeslot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 @ComponentId("booking-slot")
 public class BookingSlotEntity extends EventSourcedEntity<Timeslot, BookingEvent> {
@@ -24,68 +27,126 @@ public class BookingSlotEntity extends EventSourcedEntity<Timeslot, BookingEvent
     }
 
     public Effect<Done> markSlotAvailable(Command.MarkSlotAvailable cmd) {
-        if (currentState().available().contains(cmd.participant)) {
-            return effects().error("participant already available");
+        var rejection = markRejection(currentState(), cmd.participant);
+        if (rejection != null) {
+            return effects().error(rejection);
         }
 
-        // Ideally the domain model would be a map for efficiency
-        if (currentState().bookings().stream().anyMatch(booking -> booking.participant().equals(cmd.participant))) {
-            return effects().error("participant already booked");
+        return effects().persist(markedAvailable(cmd.participant)).thenReply((slot) -> Done.done());
+    }
+
+    public Effect<Done> unmarkSlotAvailable(Command.UnmarkSlotAvailable cmd) {
+        var rejection = unmarkRejection(currentState(), cmd.participant);
+        if (rejection != null) {
+            return effects().error(rejection);
         }
 
-        var event = new BookingEvent.ParticipantMarkedAvailable(
-            this.entityId,
-            cmd.participant.id(),
-            cmd.participant.participantType()
-        );
-        return effects().persist(event).thenReply((slot) -> Done.done());
+        return effects().persist(unmarkedAvailable(cmd.participant)).thenReply((slot) -> Done.done());
     }
 
-    public Effect<Done> unmarkSlotAvailable(Command.UnmarkSlotAvailable cmd) {
-        if (!currentState().available().contains(cmd.participant)) {
-            return effects().error("participant not available");
+    // Marks many participants available with a single persist. Each participant
+    // is checked against the slot as it would be after the ones before it, so
+    // duplicates within the batch are caught too. The reply has one outcome per
+    // participant, in order; participants that can't be marked are reported
+    // there instead of failing the whole batch.
+    public Effect<BatchResult> markSlotsAvailable(Command.MarkSlotsAvailable cmd) {
+        var slot = currentState();
+        var events = new ArrayList<BookingEvent>(cmd.participants.size());
+        var outcomes = new ArrayList<Outcome>(cmd.participants.size());
+
+        for (var participant : cmd.participants) {
+            var rejection = markRejection(slot, participant);
+            outcomes.add(new Outcome(participant, rejection == null, rejection));
+            if (rejection == null) {
+                var event = markedAvailable(participant);
+                events.add(event);
+                slot = slot.reserve(event);
+            }
         }
 
-        var event = new BookingEvent.ParticipantUnmarkedAvailable(
-            this.entityId,
-            cmd.participant.id(),
-            cmd.participant.participantType()
-        );
-        return effects().persist(event).thenReply((slot) -> Done.done());
+        return persistBatch(events, new BatchResult(outcomes));
+    }
+
+    // Unmarks many participants with a single persist, as above
+    public Effect<BatchResult> unmarkSlotsAvailable(Command.UnmarkSlotsAvailable cmd) {
+        var slot = currentState();
+        var events = new ArrayList<BookingEvent>(cmd.participants.size());
+        var outcomes = new ArrayList<Outcome>(cmd.participants.size());
+
+        for (var participant : cmd.participants) {
+            var rejection = unmarkRejection(slot, participant);
+            outcomes.add(new Outcome(participant, rejection == null, rejection));
+            if (rejection == null) {
+                var event = unmarkedAvailable(participant);
+                events.add(event);
+                slot = slot.unreserve(event);
+            }
+        }
+
+        return persistBatch(events, new BatchResult(outcomes));
+    }
+
+    private Effect<BatchResult> persistBatch(List<BookingEvent> events, BatchResult result) {
+        if (events.isEmpty()) {
+            return effects().reply(result);
+        }
+        return effects().persistAll(events).thenReply(slot -> result);
+    }
+
+    // Returns why the participant can't be marked available, or null if it can
+    private static String markRejection(Timeslot slot, Participant participant) {
+        if (slot.available().contains(participant)) {
+            return "participant already available";
+        }
+        if (slot.isBooked(participant)) {
+            return "participant already booked";
+        }
+        return null;
+    }
+
+    // Returns why the participant can't be unmarked, or null if it can
+    private static String unmarkRejection(Timeslot slot, Participant participant) {
+        if (!slot.available().contains(participant)) {
+            return "participant not available";
+        }
+        return null;
+    }
+
+    private BookingEvent.ParticipantMarkedAvailable markedAvailable(Participant participant) {
+        return new BookingEvent.ParticipantMarkedAvailable(this.entityId, participant.id(), participant.participantType());
     }
 
-    // NOTE: booking a slot should produce 3
-    // `ParticipantBooked` events
+    private BookingEvent.ParticipantUnmarkedAvailable unmarkedAvailable(Participant participant) {
+        return new BookingEvent.ParticipantUnmarkedAvailable(this.entityId, participant.id(), participant.participantType());
+    }
+
+    // A booking is persisted as a single `ReservationBooked` event naming all
+    // three participants. Booking the same reservation again is acknowledged
+    // without a new event, so that callers such as BlockBookingWorkflow can
+    // retry; any other reuse of a booking ID is rejected.
     public Effect<Done> bookSlot(Command.BookReservation cmd) {
+        var existing = currentState().findBooking(cmd.bookingId);
+        if (!existing.isEmpty()) {
+            if (isReservation(existing, cmd)) {
+                return effects().reply(Done.done());
+            }
+            return effects().error("booking ID already in use");
+        }
         if (!currentState().isBookable(cmd.studentId, cmd.aircraftId, cmd.instructorId)) {
             return effects().error("reservation is not bookable");
         }
 
-        var events = List.of(
-            new BookingEvent.ParticipantBooked(
-                this.entityId,
-                cmd.studentId,
-                Participant.ParticipantType.STUDENT,
-                cmd.bookingId
-            ),
-            new BookingEvent.ParticipantBooked(
-                this.entityId,
-                cmd.instructorId,
-                Participant.ParticipantType.INSTRUCTOR,
-                cmd.bookingId
-            ),
-            new BookingEvent.ParticipantBooked(
-                this.entityId,
-                cmd.aircraftId,
-                Participant.ParticipantType.AIRCRAFT,
-                cmd.bookingId
-            )
+        var event = new BookingEvent.ReservationBooked(
+            this.entityId,
+            cmd.bookingId,
+            cmd.studentId,
+            cmd.aircraftId,
+            cmd.instructorId
         );
-        return effects().persistAll(events).thenReply((slot) -> Done.done());
+        return effects().persist(event).thenReply((slot) -> Done.done());
     }
 
-    // NOTE: canceling a booking should produce 3
-    // `ParticipantCanceled` events
+    // A cancellation is persisted as a single `ReservationCanceled` event
     public Effect<Done> cancelBooking(String bookingId) {
         var bookings = currentState().findBooking(bookingId);
 
@@ -93,17 +154,29 @@ public class BookingSlotEntity extends EventSourcedEntity<Timeslot, BookingEvent
             return effects().error("booking not found");
         }
 
-        var events = bookings
-            .stream()
-            .map(booking -> new BookingEvent.ParticipantCanceled(
-                this.entityId,
-                booking.participant().id(),
-                booking.participant().participantType(),
-                booking.bookingId()
-            ))
-            .toList();
-        return effects().persistAll(events).thenReply(slot -> Done.done());
+        var event = new BookingEvent.ReservationCanceled(
+            this.entityId,
+            bookingId,
+            participantId(bookings, Participant.ParticipantType.STUDENT),
+            participantId(bookings, Participant.ParticipantType.AIRCRAFT),
+            participantId(bookings, Participant.ParticipantType.INSTRUCTOR)
+        );
+        return effects().persist(event).thenReply(slot -> Done.done());
+    }
+
+    // Retires a slot that started before `cutoff`: persists a final
+    // `SlotArchived` event, so that consumers and views can clean up after the
+    // slot, and deletes the entity. The caller is expected to have stored a
+    // summary of the slot first. Slots whose IDs don't name a time are never
+    // archived.
+    public Effect<Done> archive(Command.ArchiveSlot cmd) {
+        var startsAt = SlotTime.startOf(this.entityId);
+        if (startsAt.isEmpty() || !startsAt.get().isBefore(cmd.cutoff())) {
+            return effects().error("slot has not passed");
+        }
 
+        var event = new BookingEvent.SlotArchived(this.entityId, List.copyOf(cmd.participantIds()));
+        return effects().persist(event).deleteEntity().thenReply(slot -> Done.done());
     }
 
     public ReadOnlyEffect<Timeslot> getSlot() {
@@ -112,19 +185,29 @@ public class BookingSlotEntity extends EventSourcedEntity<Timeslot, BookingEvent
 
     @Override
     public Timeslot emptyState() {
-        return new Timeslot(
-            // NOTE: these are just estimates for capacity based on it being a sample
-            HashSet.newHashSet(10), HashSet.newHashSet(10));
+        return Timeslot.empty();
     }
 
     @Override
     public Timeslot applyEvent(BookingEvent event) {
-        return switch (event) {
-            case BookingEvent.ParticipantMarkedAvailable available -> currentState().reserve(available);
-            case BookingEvent.ParticipantUnmarkedAvailable unavailable -> currentState().unreserve(unavailable);
-            case BookingEvent.ParticipantBooked booked -> currentState().book(booked);
-            case BookingEvent.ParticipantCanceled cancelled -> currentState().cancelBooking(cancelled.bookingId());
-        };
+        return currentState().apply(event);
+    }
+
+    private static boolean isReservation(List<Timeslot.Booking> bookings, Command.BookReservation cmd) {
+        return bookings.size() == 3
+            && Objects.equals(cmd.studentId, participantId(bookings, Participant.ParticipantType.STUDENT))
+            && Objects.equals(cmd.aircraftId, participantId(bookings, Participant.ParticipantType.AIRCRAFT))
+            && Objects.equals(cmd.instructorId, participantId(bookings, Participant.ParticipantType.INSTRUCTOR));
+    }
+
+    // Returns null if the booking has no participant of the given type
+    private static String participantId(List<Timeslot.Booking> bookings, Participant.ParticipantType type) {
+        return bookings
+            .stream()
+            .filter(booking -> booking.participant().participantType() == type)
+            .map(booking -> booking.participant().id())
+            .findFirst()
+            .orElse(null);
     }
 
     public sealed interface Command {
@@ -134,9 +217,26 @@ public class BookingSlotEntity extends EventSourcedEntity<Timeslot, BookingEvent
         record UnmarkSlotAvailable(Participant participant) implements Command {
         }
 
+        record MarkSlotsAvailable(List<Participant> participants) implements Command {
+        }
+
+        record UnmarkSlotsAvailable(List<Participant> participants) implements Command {
+        }
+
         record BookReservation(
             String studentId, String aircraftId, String instructorId, String bookingId
         ) implements Command {
         }
+
+        record ArchiveSlot(Instant cutoff, List<String> participantIds) implements Command {
+        }
+    }
+
+    // One outcome per participant of a batch command, in command order
+    public record BatchResult(List<Outcome> outcomes) {
+    }
+
+    // `reason` explains why the participant was not applied, null if it was
+    public record Outcome(Participant participant, boolean applied, String reason) {
     }
 }
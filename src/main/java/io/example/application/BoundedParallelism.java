@@ -0,0 +1,52 @@
+package io.example.application;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+// Runs an asynchronous task for each item with at most `parallelism` tasks in
+// flight at once. Results are returned in the order of the input items. Each
+// task is started only when a previous one has completed, so a large batch never
+// floods the component it calls.
+public final class BoundedParallelism {
+
+    private BoundedParallelism() {
+    }
+
+    public static <T, R> CompletionStage<List<R>> run(
+        List<T> items, int parallelism, Function<T, CompletionStage<R>> task
+    ) {
+        if (items.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        var results = new AtomicReferenceArray<R>(items.size());
+        var next = new AtomicInteger();
+        var lanes = new CompletableFuture<?>[Math.min(Math.max(parallelism, 1), items.size())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = lane(items, results, next, task);
+        }
+        return CompletableFuture.allOf(lanes).thenApply(done ->
+            IntStream.range(0, results.length()).mapToObj(results::get).toList());
+    }
+
+    // Each lane keeps taking the next unclaimed item until none are left
+    private static <T, R> CompletableFuture<Void> lane(
+        List<T> items, AtomicReferenceArray<R> results, AtomicInteger next, Function<T, CompletionStage<R>> task
+    ) {
+        int index = next.getAndIncrement();
+        if (index >= items.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return task.apply(items.get(index))
+            .toCompletableFuture()
+            .thenCompose(result -> {
+                results.set(index, result);
+                return lane(items, results, next, task);
+            });
+    }
+}
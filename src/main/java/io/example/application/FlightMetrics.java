@@ -0,0 +1,110 @@
+package io.example.application;
+
+import akka.javasdk.CommandException;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-process service metrics, read through GET /flight/metrics without any
+// external collector:
+//
+// * `commands` - latency of every component command the service sends, from
+//   the caller's side, so it includes the round trip to the entity
+// * `rejections` - commands rejected by the entity, counted by command and by
+//   the rejection message (e.g. "reservation is not bookable")
+// * `projectionLag` - for each projection, the time from an event being
+//   persisted to the projection handling it, from the event's timestamp
+//
+// Values are cumulative since the service instance started. Latencies are
+// recorded in microseconds and capped at one minute.
+public final class FlightMetrics {
+
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Instant startedAt = Instant.now();
+    private final Map<String, Histogram> commands = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LongAdder>> rejections = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> projectionLag = new ConcurrentHashMap<>();
+
+    // Times the command call and counts it as rejected if the entity rejects it
+    public <T> CompletionStage<T> time(String command, CompletionStage<T> call) {
+        long started = System.nanoTime();
+        return call.whenComplete((result, error) -> {
+            record(commands, command, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+            var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CommandException rejected) {
+                rejected(command, rejected.getMessage());
+            }
+        });
+    }
+
+    // Counts a rejection that was reported in a reply rather than as an error,
+    // e.g. for one participant of a batch command
+    public void rejected(String command, String reason) {
+        rejections
+            .computeIfAbsent(command, c -> new ConcurrentHashMap<>())
+            .computeIfAbsent(String.valueOf(reason), r -> new LongAdder())
+            .increment();
+    }
+
+    public void projected(String projection, Instant eventTime) {
+        var lag = Duration.between(eventTime, Instant.now());
+        record(projectionLag, projection, Math.max(0, lag.toNanos() / 1000));
+    }
+
+    public Snapshot snapshot() {
+        var rejectionCounts = new TreeMap<String, Map<String, Long>>();
+        rejections.forEach((command, reasons) -> {
+            var counts = new TreeMap<String, Long>();
+            reasons.forEach((reason, count) -> counts.put(reason, count.sum()));
+            rejectionCounts.put(command, counts);
+        });
+        return new Snapshot(startedAt, distributions(commands), rejectionCounts, distributions(projectionLag));
+    }
+
+    private static void record(Map<String, Histogram> histograms, String name, long micros) {
+        histograms
+            .computeIfAbsent(name, n -> new ConcurrentHistogram(MAX_MICROS, 2))
+            .recordValue(Math.min(micros, MAX_MICROS));
+    }
+
+    private static Map<String, Distribution> distributions(Map<String, Histogram> histograms) {
+        var result = new TreeMap<String, Distribution>();
+        histograms.forEach((name, histogram) -> result.put(name, Distribution.of(histogram.copy())));
+        return result;
+    }
+
+    public record Snapshot(
+        Instant since,
+        Map<String, Distribution> commands,
+        Map<String, Map<String, Long>> rejections,
+        Map<String, Distribution> projectionLag
+    ) {
+    }
+
+    // Times in milliseconds
+    public record Distribution(
+        long count, double meanMillis, double p50Millis, double p99Millis, double p999Millis, double maxMillis
+    ) {
+
+        static Distribution of(Histogram histogram) {
+            return new Distribution(
+                histogram.getTotalCount(),
+                histogram.getMean() / 1000.0,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0
+            );
+        }
+    }
+}
@@ -2,54 +2,68 @@ package io.example.application;
 
 import akka.Done;
 import akka.javasdk.annotations.ComponentId;
-import akka.javasdk.annotations.TypeName;
-import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
 import io.example.domain.Participant.ParticipantType;
 
-@ComponentId("participant-slot")
-public class ParticipantSlotEntity extends EventSourcedEntity<ParticipantSlotEntity.State,
-    ParticipantSlotEntity.Event> {
-
+import java.util.Objects;
+
+// The status of one participant in one slot. This is derived data: the booking
+// slot journals are the source of truth and the SlotToParticipantConsumer
+// rebuilds it from them, so only the current status is stored. Every command
+// overwrites the single stored row instead of appending to a journal.
+//
+// This replaces an event sourced entity with the component ID
+// `participant-slot`, whose journals are no longer read; see the application
+// README for the migration.
+@ComponentId("participant-slot-state")
+public class ParticipantSlotEntity extends KeyValueEntity<ParticipantSlotEntity.State> {
+
+    public static final String AVAILABLE = "available";
+    public static final String UNAVAILABLE = "UNAVAILABLE";
+    public static final String BOOKED = "booked";
+    public static final String CANCELLED = "CANCELLED";
+
+    // Commands are sent by the booking slot consumer, which may redeliver them
+    // after a restart. A command that would not change the current status is
+    // acknowledged without writing the state again.
     public Effect<Done> unmarkAvailable(ParticipantSlotEntity.Commands.UnmarkAvailable unmark) {
-        var event = new ParticipantSlotEntity.Event.UnmarkedAvailable(
-            unmark.slotId(),
-            unmark.participantId(),
-            unmark.participantType()
-        );
-        return effects().persist(event).thenReply((state) -> Done.done());
+        return update(unmark.slotId(), unmark.participantId(), unmark.participantType(), UNAVAILABLE, null);
     }
 
     public Effect<Done> markAvailable(ParticipantSlotEntity.Commands.MarkAvailable mark) {
-        var event = new ParticipantSlotEntity.Event.MarkedAvailable(
-            mark.slotId(),
-            mark.participantId(),
-            mark.participantType()
-        );
-        return effects().persist(event).thenReply((state) -> Done.done());
+        return update(mark.slotId(), mark.participantId(), mark.participantType(), AVAILABLE, null);
     }
 
     public Effect<Done> book(ParticipantSlotEntity.Commands.Book book) {
-        var event = new ParticipantSlotEntity.Event.Booked(
-            book.slotId(),
-            book.participantId(),
-            book.participantType(),
-            book.bookingId()
-        );
-        return effects().persist(event).thenReply((state) -> Done.done());
+        return update(book.slotId(), book.participantId(), book.participantType(), BOOKED, book.bookingId());
     }
 
     public Effect<Done> cancel(ParticipantSlotEntity.Commands.Cancel cancel) {
-        var event = new ParticipantSlotEntity.Event.Canceled(
-            cancel.slotId(),
-            cancel.participantId(),
-            cancel.participantType(),
-            cancel.bookingId()
-        );
-        return effects().persist(event).thenReply((state) -> Done.done());
+        return update(cancel.slotId(), cancel.participantId(), cancel.participantType(), CANCELLED, cancel.bookingId());
+    }
+
+    // Deletes the participant slot once its slot has been archived
+    public Effect<Done> delete() {
+        return effects().deleteEntity().thenReply(Done.done());
+    }
+
+    private Effect<Done> update(
+        String slotId, String participantId, ParticipantType participantType, String status, String bookingId
+    ) {
+        if (hasStatus(status, bookingId)) {
+            return effects().reply(Done.done());
+        }
+        var state = new State(slotId, participantId, participantType, status, bookingId);
+        return effects().updateState(state).thenReply(Done.done());
     }
 
-    record State(
-        String slotId, String participantId, ParticipantType participantType, String status
+    private boolean hasStatus(String status, String bookingId) {
+        var state = currentState();
+        return state != null && state.status().equals(status) && Objects.equals(state.bookingId(), bookingId);
+    }
+
+    public record State(
+        String slotId, String participantId, ParticipantType participantType, String status, String bookingId
     ) {
     }
 
@@ -80,58 +94,4 @@ public class ParticipantSlotEntity extends EventSourcedEntity<ParticipantSlotEnt
         ) implements Commands {
         }
     }
-
-    public sealed interface Event {
-        @TypeName("marked-available")
-        record MarkedAvailable(String slotId, String participantId, ParticipantType participantType) implements Event {
-        }
-
-        @TypeName("unmarked-available")
-        record UnmarkedAvailable(
-            String slotId, String participantId, ParticipantType participantType
-        ) implements Event {
-        }
-
-        @TypeName("participant-booked")
-        record Booked(
-            String slotId, String participantId, ParticipantType participantType, String bookingId
-        ) implements Event {
-        }
-
-        @TypeName("participant-canceled")
-        record Canceled(
-            String slotId, String participantId, ParticipantType participantType, String bookingId
-        ) implements Event {
-        }
-    }
-
-    @Override
-    public ParticipantSlotEntity.State applyEvent(ParticipantSlotEntity.Event event) {
-        return switch (event) {
-            case ParticipantSlotEntity.Event.MarkedAvailable marked -> new ParticipantSlotEntity.State(
-                marked.slotId(),
-                marked.participantId(),
-                marked.participantType(),
-                "available"
-            );
-            case ParticipantSlotEntity.Event.UnmarkedAvailable unmarked -> new ParticipantSlotEntity.State(
-                unmarked.slotId(),
-                unmarked.participantId(),
-                unmarked.participantType(),
-                "UNAVAILABLE"
-            );
-            case ParticipantSlotEntity.Event.Booked booked -> new ParticipantSlotEntity.State(
-                booked.slotId(),
-                booked.participantId(),
-                booked.participantType(),
-                "booked"
-            );
-            case ParticipantSlotEntity.Event.Canceled canceled -> new ParticipantSlotEntity.State(
-                canceled.slotId(),
-                canceled.participantId(),
-                canceled.participantType(),
-                "CANCELLED"
-            );
-        };
-    }
 }
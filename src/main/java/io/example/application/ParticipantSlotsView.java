@@ -1,59 +1,143 @@
 package io.example.application;
 
+import akka.javasdk.Metadata;
 import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.DeleteHandler;
 import akka.javasdk.annotations.Query;
 import akka.javasdk.view.TableUpdater;
 import akka.javasdk.view.View;
-import io.example.application.ParticipantSlotEntity.Event.Booked;
+import io.example.domain.SlotTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
+import java.time.ZonedDateTime;
 import java.util.List;
 
-@ComponentId("view-participant-slots")
+// The view is rebuilt from the participant slot state, so its component ID
+// changed with the move of ParticipantSlotEntity to key-value storage
+@ComponentId("view-participant-slots-v2")
 public class ParticipantSlotsView extends View {
 
     private static final Logger logger = LoggerFactory.getLogger(ParticipantSlotsView.class);
 
-    @Consume.FromEventSourcedEntity(ParticipantSlotEntity.class)
+    // Unmarked and canceled participant slots keep their row with the
+    // corresponding status, so that streamed subscribers see those changes too.
+    // Queries always filter on status, so they only ever see live rows.
+    @Consume.FromKeyValueEntity(ParticipantSlotEntity.class)
     public static class ParticipantSlotsViewUpdater extends TableUpdater<SlotRow> {
 
-        public Effect<SlotRow> onEvent(ParticipantSlotEntity.Event event) {
-            return switch (event) {
-                case Booked booked -> effects().updateRow(new SlotRow(
-                    booked.slotId(),
-                    booked.participantId(),
-                    booked.participantType().toString(),
-                    booked.bookingId(),
-                    "booked"
-                ));
-                case ParticipantSlotEntity.Event.MarkedAvailable markedAvailable -> effects().updateRow(new SlotRow(
-                    markedAvailable.slotId(),
-                    markedAvailable.participantId(),
-                    markedAvailable.participantType().toString(),
-                    "",
-                    "available"
-                ));
-                case ParticipantSlotEntity.Event.Canceled canceled -> effects().deleteRow();
-                case ParticipantSlotEntity.Event.UnmarkedAvailable unmarkedAvailable -> effects().deleteRow();
-            };
+        public Effect<SlotRow> onUpdate(ParticipantSlotEntity.State state) {
+            return effects().updateRow(new SlotRow(
+                state.slotId(),
+                state.participantId(),
+                state.participantType().toString(),
+                state.bookingId() == null ? "" : state.bookingId(),
+                state.status(),
+                SlotTime.startOf(state.slotId()).orElse(null),
+                eventTime(updateContext().metadata())
+            ));
         }
+
+        // Participant slots are deleted when their slot is archived
+        @DeleteHandler
+        public Effect<SlotRow> onDelete() {
+            return effects().deleteRow();
+        }
+    }
+
+    // The time at which the projected event or state change was persisted,
+    // used as the resumable offset of streamed changes
+    static Instant eventTime(Metadata metadata) {
+        return metadata.asCloudEvent().time().map(ZonedDateTime::toInstant).orElseGet(Instant::now);
     }
 
+    // `startsAt` is parsed from slot IDs that follow the `yyyy-MM-dd-HH`
+    // convention and is null for any other slot ID. `updatedAt` is the time of
+    // the event that last changed the row.
     public record SlotRow(
-        String slotId, String participantId, String participantType, String bookingId, String status
+        String slotId,
+        String participantId,
+        String participantType,
+        String bookingId,
+        String status,
+        Instant startsAt,
+        Instant updatedAt
     ) {
     }
 
     public record ParticipantStatusInput(String participantId, String status) {
     }
 
+    public record SlotIdInput(String slotId) {
+    }
+
     public record SlotList(List<SlotRow> slots) {
     }
 
+    // An empty page token requests the first page
+    public record ParticipantStatusPageInput(String participantId, String status, String pageToken, int pageSize) {
+    }
+
+    // Slots starting at or after `from` and before `to`
+    public record ParticipantStatusRangeInput(String participantId, String status, Instant from, Instant to) {
+    }
+
+    // Changes made at or after `since`
+    public record ParticipantChangesInput(String participantId, Instant since) {
+    }
+
+    public record SlotPage(List<SlotRow> slots, String nextPageToken, boolean hasMore) {
+    }
+
     @Query("SELECT * AS slots FROM participant_slots WHERE participantId = :participantId AND status = :status")
     public QueryEffect<SlotList> getSlotsByParticipantAndStatus(ParticipantStatusInput input) {
         return queryResult();
     }
+
+    // Every participant row of a slot, whatever its status
+    @Query("SELECT * AS slots FROM participant_slots WHERE slotId = :slotId")
+    public QueryEffect<SlotList> getSlotsBySlotId(SlotIdInput input) {
+        return queryResult();
+    }
+
+    @Query("""
+        SELECT * AS slots, next_page_token() AS nextPageToken, has_more() AS hasMore
+        FROM participant_slots
+        WHERE participantId = :participantId AND status = :status
+        ORDER BY slotId
+        OFFSET page_token_offset(:pageToken)
+        LIMIT :pageSize
+        """)
+    public QueryEffect<SlotPage> getSlotPageByParticipantAndStatus(ParticipantStatusPageInput input) {
+        return queryResult();
+    }
+
+    @Query("""
+        SELECT * AS slots
+        FROM participant_slots
+        WHERE participantId = :participantId AND status = :status
+          AND startsAt >= :from AND startsAt < :to
+        ORDER BY startsAt
+        """)
+    public QueryEffect<SlotList> getSlotsByParticipantAndStatusInRange(ParticipantStatusRangeInput input) {
+        return queryResult();
+    }
+
+    // Streams matching rows one at a time instead of collecting them into a SlotList
+    @Query("SELECT * FROM participant_slots WHERE participantId = :participantId AND status = :status")
+    public QueryStreamEffect<SlotRow> streamSlotsByParticipantAndStatus(ParticipantStatusInput input) {
+        return queryStreamResult();
+    }
+
+    // Streams every row of a participant changed at or after `since`, then keeps
+    // streaming rows as they change
+    @Query(
+        value = "SELECT * FROM participant_slots WHERE participantId = :participantId AND updatedAt >= :since",
+        streamUpdates = true
+    )
+    public QueryStreamEffect<SlotRow> streamParticipantSlotChanges(ParticipantChangesInput input) {
+        return queryStreamResult();
+    }
 }
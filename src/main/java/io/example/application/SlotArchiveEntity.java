@@ -0,0 +1,47 @@
+package io.example.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A compact summary of the archived slots of one day, keyed by the date
+// (`yyyy-MM-dd`). It keeps the bookings each slot ended up with and how many
+// participants were left available, which is all that is kept of a slot once
+// SlotArchiver has deleted it.
+@ComponentId("slot-archive")
+public class SlotArchiveEntity extends KeyValueEntity<SlotArchiveEntity.State> {
+
+    // Keeps the first summary of a slot. A slot is summarized before it is
+    // archived, so any later summary is of a retry or of a batch that picked the
+    // slot up again from a lagging view, after its state was deleted.
+    public Effect<Done> addSlot(ArchivedSlot slot) {
+        var slots = new ArrayList<ArchivedSlot>();
+        if (currentState() != null) {
+            if (currentState().slots().stream().anyMatch(existing -> existing.slotId().equals(slot.slotId()))) {
+                return effects().reply(Done.done());
+            }
+            slots.addAll(currentState().slots());
+        }
+        slots.add(slot);
+        return effects().updateState(new State(List.copyOf(slots))).thenReply(Done.done());
+    }
+
+    public ReadOnlyEffect<State> getArchive() {
+        if (currentState() == null) {
+            return effects().error("no archived slots");
+        }
+        return effects().reply(currentState());
+    }
+
+    public record State(List<ArchivedSlot> slots) {
+    }
+
+    public record ArchivedSlot(String slotId, List<ArchivedBooking> bookings, int available) {
+    }
+
+    public record ArchivedBooking(String bookingId, String studentId, String aircraftId, String instructorId) {
+    }
+}
@@ -0,0 +1,204 @@
+package io.example.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timedaction.TimedAction;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import io.example.domain.SlotTime;
+import io.example.domain.Timeslot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+// Retires slots that started more than `flight.archive.retention` ago. For each
+// slot it stores a summary in the SlotArchiveEntity of the slot's day, then
+// archives the BookingSlotEntity, which deletes it. The archive event in turn
+// deletes the slot's participant slots (SlotToParticipantConsumer), their view
+// rows and the slot's row in SlotParticipantsView.
+//
+// Slots are archived in batches of `batch-size`, `parallelism` at a time, with a
+// pause of `batch-interval` between batches, and only within the daily
+// `window-start`..`window-end` window so that archiving doesn't compete with
+// daytime traffic. Once there is nothing left to archive, the next run is at the
+// start of the next window.
+//
+// Runs are chained through a single-shot timer that each run schedules for the
+// next. The chain has one fixed timer name, which service startup reuses too, so
+// scheduling a run always replaces the pending one: there is never more than
+// one chain, however many nodes start or restart.
+@ComponentId("slot-archiver")
+public class SlotArchiver extends TimedAction {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotArchiver.class);
+
+    private static final String TIMER = "slot-archiver";
+
+    private final ComponentClient componentClient;
+    private final Settings settings;
+
+    public SlotArchiver(ComponentClient componentClient, Config config) {
+        this.componentClient = componentClient;
+        this.settings = Settings.of(config);
+    }
+
+    public Effect archiveBatch(int run) {
+        if (!settings.enabled()) {
+            return effects().done();
+        }
+
+        var now = ZonedDateTime.now(settings.zone());
+        if (!settings.inWindow(now.toLocalTime())) {
+            scheduleRun(timers(), componentClient, run + 1, settings.untilWindowStart(now));
+            return effects().done();
+        }
+
+        // Slot times are wall-clock times represented as UTC, see SlotTime
+        var cutoff = SlotTime.toInstant(now.toLocalDateTime()).minus(settings.retention());
+        var batch = componentClient
+            .forView()
+            .method(SlotParticipantsView::getSlotsStartingBefore)
+            .invokeAsync(new SlotParticipantsView.StartsBeforeInput(cutoff, settings.batchSize()))
+            .thenCompose(due -> BoundedParallelism
+                .run(due.slots(), settings.parallelism(), row -> archive(row.slotId(), cutoff))
+                .thenApply(archived -> {
+                    logger.info("Archived {} of {} slots that started before {}",
+                        archived.stream().filter(Boolean::booleanValue).count(), due.slots().size(), cutoff);
+                    var delay = due.slots().size() < settings.batchSize()
+                        ? settings.untilWindowStart(ZonedDateTime.now(settings.zone()))
+                        : settings.batchInterval();
+                    scheduleRun(timers(), componentClient, run + 1, delay);
+                    return Done.done();
+                }));
+
+        return effects().asyncDone(batch);
+    }
+
+    // Completes with false if the slot could not be archived; it is picked up
+    // again by a later batch
+    private CompletionStage<Boolean> archive(String slotId, Instant cutoff) {
+        var slot = componentClient.forEventSourcedEntity(slotId);
+        var state = slot.method(BookingSlotEntity::getSlot).invokeAsync();
+        var rows = componentClient
+            .forView()
+            .method(ParticipantSlotsView::getSlotsBySlotId)
+            .invokeAsync(new ParticipantSlotsView.SlotIdInput(slotId));
+
+        return state
+            .thenCombine(rows, (timeslot, slotRows) -> {
+                // Participants that left the slot earlier only show up in the view
+                var participantIds = new LinkedHashSet<String>();
+                timeslot.bookings().forEach(booking -> participantIds.add(booking.participant().id()));
+                timeslot.available().forEach(participant -> participantIds.add(participant.id()));
+                slotRows.slots().forEach(row -> participantIds.add(row.participantId()));
+                return new Archival(
+                    summary(slotId, timeslot),
+                    new BookingSlotEntity.Command.ArchiveSlot(cutoff, List.copyOf(participantIds))
+                );
+            })
+            .thenCompose(archival -> componentClient
+                .forKeyValueEntity(archiveDay(slotId))
+                .method(SlotArchiveEntity::addSlot)
+                .invokeAsync(archival.summary())
+                .thenCompose(done -> slot.method(BookingSlotEntity::archive).invokeAsync(archival.command())))
+            .thenApply(done -> true)
+            .exceptionally(error -> {
+                logger.warn("Could not archive slot {}", slotId, error);
+                return false;
+            });
+    }
+
+    private static SlotArchiveEntity.ArchivedSlot summary(String slotId, Timeslot timeslot) {
+        var bookings = timeslot.bookings().stream()
+            .map(Timeslot.Booking::bookingId)
+            .distinct()
+            .map(bookingId -> {
+                String studentId = null;
+                String aircraftId = null;
+                String instructorId = null;
+                for (var booking : timeslot.findBooking(bookingId)) {
+                    switch (booking.participant().participantType()) {
+                        case STUDENT -> studentId = booking.participant().id();
+                        case AIRCRAFT -> aircraftId = booking.participant().id();
+                        case INSTRUCTOR -> instructorId = booking.participant().id();
+                    }
+                }
+                return new SlotArchiveEntity.ArchivedBooking(bookingId, studentId, aircraftId, instructorId);
+            })
+            .toList();
+        return new SlotArchiveEntity.ArchivedSlot(slotId, bookings, timeslot.available().size());
+    }
+
+    // The archive entity for the day of the slot, e.g. `2025-08-08`. Only slots
+    // whose IDs name a time are ever archived.
+    private static String archiveDay(String slotId) {
+        return SlotTime.startOf(slotId)
+            .map(start -> LocalDate.ofInstant(start, ZoneOffset.UTC).toString())
+            .orElseThrow();
+    }
+
+    private record Archival(SlotArchiveEntity.ArchivedSlot summary, BookingSlotEntity.Command.ArchiveSlot command) {
+    }
+
+    // Schedules run number `run`, replacing the pending run if there is one
+    public static void scheduleRun(TimerScheduler timers, ComponentClient componentClient, int run, Duration delay) {
+        timers.startSingleTimer(
+            TIMER,
+            delay,
+            componentClient.forTimedAction().method(SlotArchiver::archiveBatch).deferred(run)
+        );
+    }
+
+    record Settings(
+        boolean enabled,
+        Duration retention,
+        int batchSize,
+        int parallelism,
+        Duration batchInterval,
+        LocalTime windowStart,
+        LocalTime windowEnd,
+        ZoneId zone
+    ) {
+
+        static Settings of(Config config) {
+            var archive = config.getConfig("flight.archive");
+            return new Settings(
+                archive.getBoolean("enabled"),
+                archive.getDuration("retention"),
+                archive.getInt("batch-size"),
+                archive.getInt("parallelism"),
+                archive.getDuration("batch-interval"),
+                LocalTime.parse(archive.getString("window-start")),
+                LocalTime.parse(archive.getString("window-end")),
+                ZoneId.of(archive.getString("window-zone"))
+            );
+        }
+
+        // The window may span midnight, e.g. 22:00 to 04:00
+        boolean inWindow(LocalTime time) {
+            if (windowStart.isBefore(windowEnd)) {
+                return !time.isBefore(windowStart) && time.isBefore(windowEnd);
+            }
+            return !time.isBefore(windowStart) || time.isBefore(windowEnd);
+        }
+
+        Duration untilWindowStart(ZonedDateTime now) {
+            var start = now.with(windowStart);
+            if (!start.isAfter(now)) {
+                start = start.plusDays(1);
+            }
+            return Duration.between(now, start);
+        }
+    }
+}
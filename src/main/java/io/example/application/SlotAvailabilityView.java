@@ -0,0 +1,185 @@
+package io.example.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+import io.example.domain.BookingEvent;
+import io.example.domain.Participant.ParticipantType;
+import io.example.domain.SlotTime;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Who is free in each slot, fed directly from the booking slot events. There is
+// one row per slot holding the IDs of its available participants by type, so
+// the participants available across a range of slots are found with a single
+// query instead of loading every slot's Timeslot from BookingSlotEntity.
+//
+// `availableTypes` lists the participant types with at least one available
+// participant, so a query for one type skips slots where nobody of that type
+// is free. Booked participants are not available; canceling a booking doesn't
+// make them available again (see Timeslot), so cancellations leave rows as
+// they are. Rows of archived slots are deleted.
+@ComponentId("view-slot-availability")
+public class SlotAvailabilityView extends View {
+
+    @Consume.FromEventSourcedEntity(BookingSlotEntity.class)
+    public static class SlotAvailabilityUpdater extends TableUpdater<SlotAvailabilityRow> {
+
+        public Effect<SlotAvailabilityRow> onEvent(BookingEvent event) {
+            if (event instanceof BookingEvent.SlotArchived) {
+                return effects().deleteRow();
+            }
+            if (event instanceof BookingEvent.ReservationCanceled || event instanceof BookingEvent.ParticipantCanceled) {
+                return effects().ignore();
+            }
+
+            var row = rowState() == null
+                ? SlotAvailabilityRow.empty(updateContext().eventSubject().orElseThrow())
+                : rowState();
+
+            var updated = switch (event) {
+                case BookingEvent.ParticipantMarkedAvailable marked ->
+                    row.with(marked.participantType(), marked.participantId());
+                case BookingEvent.ParticipantUnmarkedAvailable unmarked ->
+                    row.without(unmarked.participantType(), unmarked.participantId());
+                case BookingEvent.ReservationBooked booked -> row
+                    .without(ParticipantType.STUDENT, booked.studentId())
+                    .without(ParticipantType.INSTRUCTOR, booked.instructorId())
+                    .without(ParticipantType.AIRCRAFT, booked.aircraftId());
+                case BookingEvent.ParticipantBooked booked ->
+                    row.without(booked.participantType(), booked.participantId());
+                // Handled above
+                case BookingEvent.ReservationCanceled canceled -> row;
+                case BookingEvent.ParticipantCanceled canceled -> row;
+                case BookingEvent.SlotArchived archived -> row;
+            };
+            return effects().updateRow(updated.updatedAt(ParticipantSlotsView.eventTime(updateContext().metadata())));
+        }
+    }
+
+    // `startsAt` is null for slot IDs that don't follow the date convention.
+    // `updatedAt` is the time of the event that last changed the slot.
+    public record SlotAvailabilityRow(
+        String slotId,
+        Instant startsAt,
+        List<String> students,
+        List<String> instructors,
+        List<String> aircraft,
+        List<String> availableTypes,
+        Instant updatedAt
+    ) {
+
+        static SlotAvailabilityRow empty(String slotId) {
+            return new SlotAvailabilityRow(
+                slotId, SlotTime.startOf(slotId).orElse(null), List.of(), List.of(), List.of(), List.of(), null);
+        }
+
+        public List<String> available(ParticipantType type) {
+            return switch (type) {
+                case STUDENT -> students;
+                case INSTRUCTOR -> instructors;
+                case AIRCRAFT -> aircraft;
+            };
+        }
+
+        // The row with only the participants of the given type
+        public SlotAvailabilityRow only(ParticipantType type) {
+            return new SlotAvailabilityRow(
+                slotId,
+                startsAt,
+                type == ParticipantType.STUDENT ? students : List.of(),
+                type == ParticipantType.INSTRUCTOR ? instructors : List.of(),
+                type == ParticipantType.AIRCRAFT ? aircraft : List.of(),
+                availableTypes.contains(type.toString()) ? List.of(type.toString()) : List.of(),
+                updatedAt
+            );
+        }
+
+        SlotAvailabilityRow with(ParticipantType type, String participantId) {
+            if (available(type).contains(participantId)) {
+                return this;
+            }
+            var updated = new ArrayList<>(available(type));
+            updated.add(participantId);
+            return withAvailable(type, updated);
+        }
+
+        SlotAvailabilityRow without(ParticipantType type, String participantId) {
+            return withAvailable(type, available(type).stream().filter(id -> !id.equals(participantId)).toList());
+        }
+
+        SlotAvailabilityRow updatedAt(Instant time) {
+            return new SlotAvailabilityRow(slotId, startsAt, students, instructors, aircraft, availableTypes, time);
+        }
+
+        private SlotAvailabilityRow withAvailable(ParticipantType type, List<String> ids) {
+            var newStudents = type == ParticipantType.STUDENT ? List.copyOf(ids) : students;
+            var newInstructors = type == ParticipantType.INSTRUCTOR ? List.copyOf(ids) : instructors;
+            var newAircraft = type == ParticipantType.AIRCRAFT ? List.copyOf(ids) : aircraft;
+
+            var types = new ArrayList<String>();
+            if (!newStudents.isEmpty()) {
+                types.add(ParticipantType.STUDENT.toString());
+            }
+            if (!newInstructors.isEmpty()) {
+                types.add(ParticipantType.INSTRUCTOR.toString());
+            }
+            if (!newAircraft.isEmpty()) {
+                types.add(ParticipantType.AIRCRAFT.toString());
+            }
+            return new SlotAvailabilityRow(
+                slotId, startsAt, newStudents, newInstructors, newAircraft, List.copyOf(types), updatedAt);
+        }
+    }
+
+    // Slots starting within [from, to)
+    public record RangeInput(Instant from, Instant to) {
+    }
+
+    // Slots starting within [from, to) whose rows changed at or after `since`
+    public record ChangedRangeInput(Instant from, Instant to, Instant since) {
+    }
+
+    // Slots starting within [from, to) with at least one available participant
+    // of `participantType`
+    public record TypeRangeInput(String participantType, Instant from, Instant to) {
+    }
+
+    public record SlotAvailabilityList(List<SlotAvailabilityRow> slots) {
+    }
+
+    @Query("""
+        SELECT * AS slots
+        FROM slot_availability
+        WHERE startsAt >= :from AND startsAt < :to
+        ORDER BY startsAt
+        """)
+    public QueryEffect<SlotAvailabilityList> getAvailabilityInRange(RangeInput input) {
+        return queryResult();
+    }
+
+    // Used to refresh the BookableIndex with only the slots that changed
+    @Query("""
+        SELECT * AS slots
+        FROM slot_availability
+        WHERE startsAt >= :from AND startsAt < :to AND updatedAt >= :since
+        """)
+    public QueryEffect<SlotAvailabilityList> getAvailabilityChangedInRange(ChangedRangeInput input) {
+        return queryResult();
+    }
+
+    @Query("""
+        SELECT * AS slots
+        FROM slot_availability
+        WHERE :participantType = ANY(availableTypes)
+          AND startsAt >= :from AND startsAt < :to
+        ORDER BY startsAt
+        """)
+    public QueryEffect<SlotAvailabilityList> getAvailabilityOfTypeInRange(TypeRangeInput input) {
+        return queryResult();
+    }
+}
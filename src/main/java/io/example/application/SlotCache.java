@@ -0,0 +1,113 @@
+package io.example.application;
+
+import io.example.domain.Timeslot;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// A bounded, in-process cache of booking slot state in front of
+// GET /flight/availability/{slotId}. Entries are evicted least-recently-used
+// once the cache is full, expire after a fixed TTL, and are invalidated by the
+// slot's own events (see SlotCacheInvalidator).
+//
+// Timeslot is immutable, so cached instances can be shared freely. A load that
+// started before an invalidation of its slot must not repopulate the cache with
+// the state it read, so callers take a stamp before loading and hand it back to
+// `put`; the put is dropped if the same slot was invalidated in between.
+// Invalidations of other slots don't affect it.
+//
+// Stamps come from a counter that every invalidation advances, and the cache
+// remembers the counter value of the latest invalidation per slot. Only the most
+// recent MAX_TRACKED_INVALIDATIONS slots are remembered; older ones fold into a
+// single floor, which at worst drops a put whose load started before them.
+public final class SlotCache {
+
+    private static final int MAX_TRACKED_INVALIDATIONS = 10_000;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+    private final LinkedHashMap<String, Long> invalidatedAt;
+
+    private long invalidations;
+    private long forgottenInvalidations;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    private record Entry(Timeslot slot, long loadedAt) {
+    }
+
+    public record Stats(
+        int size, int maxEntries, long hits, long misses, long evictions, long expirations, long invalidations
+    ) {
+    }
+
+    public SlotCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > SlotCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidatedAt = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > MAX_TRACKED_INVALIDATIONS) {
+                    forgottenInvalidations = eldest.getValue();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized Optional<Timeslot> get(String slotId) {
+        var entry = entries.get(slotId);
+        if (entry == null) {
+            misses++;
+            return Optional.empty();
+        }
+        if (System.nanoTime() - entry.loadedAt() > ttlNanos) {
+            entries.remove(slotId);
+            expirations++;
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(entry.slot());
+    }
+
+    // Take a stamp before loading a slot from the entity
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    public synchronized void put(String slotId, Timeslot slot, long stamp) {
+        var lastInvalidated = invalidatedAt.getOrDefault(slotId, forgottenInvalidations);
+        if (maxEntries > 0 && lastInvalidated <= stamp) {
+            entries.put(slotId, new Entry(slot, System.nanoTime()));
+        }
+    }
+
+    public synchronized void invalidate(String slotId) {
+        invalidations++;
+        entries.remove(slotId);
+        // Re-inserted so that the map stays ordered by invalidation
+        invalidatedAt.remove(slotId);
+        invalidatedAt.put(slotId, invalidations);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), maxEntries, hits, misses, evictions, expirations, invalidations);
+    }
+}
@@ -0,0 +1,33 @@
+package io.example.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import io.example.domain.BookingEvent;
+
+// Drops a slot from the SlotCache whenever the slot persists an event. Any
+// event changes the slot, so the entity ID is all that is needed.
+//
+// The cache is per service instance while this consumer only sees the events of
+// the slices it owns, so in a multi-node deployment the cache TTL is what bounds
+// staleness on the other nodes.
+@ComponentId("slot-cache-invalidator")
+@Consume.FromEventSourcedEntity(BookingSlotEntity.class)
+public class SlotCacheInvalidator extends Consumer {
+
+    private final SlotCache cache;
+    private final FlightMetrics metrics;
+
+    public SlotCacheInvalidator(SlotCache cache, FlightMetrics metrics) {
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    // Its lag also stands in for that of SlotParticipantsView, which projects
+    // the same events
+    public Effect onEvent(BookingEvent event) {
+        messageContext().eventSubject().ifPresent(cache::invalidate);
+        metrics.projected("slot-cache-invalidator", ParticipantSlotsView.eventTime(messageContext().metadata()));
+        return effects().done();
+    }
+}
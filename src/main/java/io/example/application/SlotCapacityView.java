@@ -0,0 +1,129 @@
+package io.example.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+import io.example.domain.BookingEvent;
+import io.example.domain.Participant.ParticipantType;
+import io.example.domain.SlotTime;
+
+import java.time.Instant;
+import java.util.List;
+
+// Per-slot counters for the capacity dashboard: how many students, instructors
+// and aircraft are available and how many bookings the slot holds. Rows are
+// maintained incrementally from the booking slot events and hold no IDs, so a
+// month of slots is a few hundred small rows read in one query.
+//
+// The counters follow the Timeslot: booking moves the three participants out of
+// available, and canceling removes the booking without making them available
+// again. Journals written before ReservationBooked book and cancel with one
+// event per participant, which are counted once per booking through the
+// student's event. Rows of archived slots are deleted.
+@ComponentId("view-slot-capacity")
+public class SlotCapacityView extends View {
+
+    @Consume.FromEventSourcedEntity(BookingSlotEntity.class)
+    public static class SlotCapacityUpdater extends TableUpdater<SlotCapacityRow> {
+
+        public Effect<SlotCapacityRow> onEvent(BookingEvent event) {
+            if (event instanceof BookingEvent.SlotArchived) {
+                return effects().deleteRow();
+            }
+
+            var row = rowState() == null
+                ? SlotCapacityRow.empty(updateContext().eventSubject().orElseThrow())
+                : rowState();
+
+            var updated = switch (event) {
+                case BookingEvent.ParticipantMarkedAvailable marked -> row.withAvailable(marked.participantType(), 1);
+                case BookingEvent.ParticipantUnmarkedAvailable unmarked ->
+                    row.withAvailable(unmarked.participantType(), -1);
+                case BookingEvent.ReservationBooked booked -> row
+                    .withAvailable(ParticipantType.STUDENT, -1)
+                    .withAvailable(ParticipantType.INSTRUCTOR, -1)
+                    .withAvailable(ParticipantType.AIRCRAFT, -1)
+                    .withBookings(1);
+                case BookingEvent.ReservationCanceled canceled -> row.withBookings(-1);
+                case BookingEvent.ParticipantBooked booked -> {
+                    var withoutParticipant = row.withAvailable(booked.participantType(), -1);
+                    yield booked.participantType() == ParticipantType.STUDENT
+                        ? withoutParticipant.withBookings(1)
+                        : withoutParticipant;
+                }
+                case BookingEvent.ParticipantCanceled canceled ->
+                    canceled.participantType() == ParticipantType.STUDENT ? row.withBookings(-1) : row;
+                // Handled above
+                case BookingEvent.SlotArchived archived -> row;
+            };
+            return effects().updateRow(updated.updatedAt(ParticipantSlotsView.eventTime(updateContext().metadata())));
+        }
+    }
+
+    // `startsAt` is null for slot IDs that don't follow the date convention.
+    // `updatedAt` is the time of the event that last changed the slot.
+    public record SlotCapacityRow(
+        String slotId,
+        Instant startsAt,
+        int availableStudents,
+        int availableInstructors,
+        int availableAircraft,
+        int bookings,
+        Instant updatedAt
+    ) {
+
+        static SlotCapacityRow empty(String slotId) {
+            return new SlotCapacityRow(slotId, SlotTime.startOf(slotId).orElse(null), 0, 0, 0, 0, null);
+        }
+
+        // Counters never drop below zero, even for legacy journals that cancel
+        // a booking more than once
+        SlotCapacityRow withAvailable(ParticipantType type, int delta) {
+            return new SlotCapacityRow(
+                slotId,
+                startsAt,
+                type == ParticipantType.STUDENT ? Math.max(0, availableStudents + delta) : availableStudents,
+                type == ParticipantType.INSTRUCTOR ? Math.max(0, availableInstructors + delta) : availableInstructors,
+                type == ParticipantType.AIRCRAFT ? Math.max(0, availableAircraft + delta) : availableAircraft,
+                bookings,
+                updatedAt
+            );
+        }
+
+        SlotCapacityRow withBookings(int delta) {
+            return new SlotCapacityRow(
+                slotId,
+                startsAt,
+                availableStudents,
+                availableInstructors,
+                availableAircraft,
+                Math.max(0, bookings + delta),
+                updatedAt
+            );
+        }
+
+        SlotCapacityRow updatedAt(Instant time) {
+            return new SlotCapacityRow(
+                slotId, startsAt, availableStudents, availableInstructors, availableAircraft, bookings, time);
+        }
+    }
+
+    // Slots starting within [from, to)
+    public record RangeInput(Instant from, Instant to) {
+    }
+
+    public record SlotCapacityList(List<SlotCapacityRow> slots) {
+    }
+
+    @Query("""
+        SELECT * AS slots
+        FROM slot_capacity
+        WHERE startsAt >= :from AND startsAt < :to
+        ORDER BY startsAt
+        """)
+    public QueryEffect<SlotCapacityList> getCapacityInRange(RangeInput input) {
+        return queryResult();
+    }
+}
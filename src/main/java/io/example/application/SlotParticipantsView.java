@@ -0,0 +1,196 @@
+package io.example.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+import io.example.application.ParticipantSlotsView.SlotList;
+import io.example.application.ParticipantSlotsView.SlotRow;
+import io.example.domain.BookingEvent;
+import io.example.domain.Participant.ParticipantType;
+import io.example.domain.SlotTime;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// An alternative to the SlotToParticipantConsumer -> ParticipantSlotEntity ->
+// ParticipantSlotsView pipeline. This view is fed directly from the booking slot
+// events, so every state change costs a single journal write and a single
+// projection. View rows are keyed by the event source, so there is one row per
+// slot holding an entry per slot-participant; `statusKeys` indexes those entries
+// by `{participantId}|{status}` so they can still be queried per participant.
+//
+// Rows of archived slots are deleted. The component ID changed when rows gained
+// `startsAt`, which rebuilds the view from the booking slot journals.
+@ComponentId("view-slot-participants-v2")
+public class SlotParticipantsView extends View {
+
+    public static final String AVAILABLE = "available";
+    public static final String BOOKED = "booked";
+
+    @Consume.FromEventSourcedEntity(BookingSlotEntity.class)
+    public static class SlotParticipantsUpdater extends TableUpdater<SlotParticipantsRow> {
+
+        public Effect<SlotParticipantsRow> onEvent(BookingEvent event) {
+            if (event instanceof BookingEvent.SlotArchived) {
+                return effects().deleteRow();
+            }
+
+            var row = rowState() == null
+                ? SlotParticipantsRow.empty(slotId(event))
+                : rowState();
+
+            var updated = switch (event) {
+                case BookingEvent.ParticipantMarkedAvailable marked ->
+                    row.with(new ParticipantEntry(marked.participantId(), marked.participantType().toString(), "", AVAILABLE));
+                case BookingEvent.ParticipantUnmarkedAvailable unmarked -> row.without(unmarked.participantId());
+                case BookingEvent.ReservationBooked booked -> row
+                    .with(bookedEntry(booked.studentId(), ParticipantType.STUDENT, booked.bookingId()))
+                    .with(bookedEntry(booked.instructorId(), ParticipantType.INSTRUCTOR, booked.bookingId()))
+                    .with(bookedEntry(booked.aircraftId(), ParticipantType.AIRCRAFT, booked.bookingId()));
+                case BookingEvent.ReservationCanceled canceled -> row.withoutBooking(canceled.bookingId());
+                case BookingEvent.ParticipantBooked booked ->
+                    row.with(bookedEntry(booked.participantId(), booked.participantType(), booked.bookingId()));
+                case BookingEvent.ParticipantCanceled canceled -> row.withoutBooking(canceled.bookingId());
+                // Handled above
+                case BookingEvent.SlotArchived archived -> row;
+            };
+            return effects().updateRow(updated.updatedAt(ParticipantSlotsView.eventTime(updateContext().metadata())));
+        }
+
+        private static ParticipantEntry bookedEntry(String participantId, ParticipantType type, String bookingId) {
+            return new ParticipantEntry(participantId, type.toString(), bookingId, BOOKED);
+        }
+
+        private static String slotId(BookingEvent event) {
+            return switch (event) {
+                case BookingEvent.ParticipantMarkedAvailable evt -> evt.slotId();
+                case BookingEvent.ParticipantUnmarkedAvailable evt -> evt.slotId();
+                case BookingEvent.ReservationBooked evt -> evt.slotId();
+                case BookingEvent.ReservationCanceled evt -> evt.slotId();
+                case BookingEvent.ParticipantBooked evt -> evt.slotId();
+                case BookingEvent.ParticipantCanceled evt -> evt.slotId();
+                case BookingEvent.SlotArchived evt -> evt.slotId();
+            };
+        }
+    }
+
+    public record ParticipantEntry(String participantId, String participantType, String bookingId, String status) {
+    }
+
+    // `updatedAt` is the time of the event that last changed the slot.
+    // `startsAt` is null for slot IDs that don't follow the date convention.
+    public record SlotParticipantsRow(
+        String slotId,
+        List<ParticipantEntry> participants,
+        List<String> statusKeys,
+        Instant startsAt,
+        Instant updatedAt
+    ) {
+
+        static SlotParticipantsRow empty(String slotId) {
+            return new SlotParticipantsRow(slotId, List.of(), List.of(), SlotTime.startOf(slotId).orElse(null), null);
+        }
+
+        // Replaces any existing entry for the same participant
+        SlotParticipantsRow with(ParticipantEntry entry) {
+            var updated = new ArrayList<>(without(entry.participantId()).participants());
+            updated.add(entry);
+            return withParticipants(updated);
+        }
+
+        SlotParticipantsRow without(String participantId) {
+            return withParticipants(participants.stream().filter(p -> !p.participantId().equals(participantId)).toList());
+        }
+
+        SlotParticipantsRow withoutBooking(String bookingId) {
+            return withParticipants(participants.stream()
+                .filter(p -> !(BOOKED.equals(p.status()) && Objects.equals(p.bookingId(), bookingId)))
+                .toList());
+        }
+
+        SlotParticipantsRow updatedAt(Instant time) {
+            return new SlotParticipantsRow(slotId, participants, statusKeys, startsAt, time);
+        }
+
+        // The slot-participant rows for one participant in this slot
+        List<SlotRow> rowsFor(String participantId, String status) {
+            return participants.stream()
+                .filter(p -> p.participantId().equals(participantId) && p.status().equals(status))
+                .map(p -> new SlotRow(
+                    slotId,
+                    p.participantId(),
+                    p.participantType(),
+                    p.bookingId(),
+                    p.status(),
+                    startsAt,
+                    updatedAt
+                ))
+                .toList();
+        }
+
+        private SlotParticipantsRow withParticipants(List<ParticipantEntry> participants) {
+            return new SlotParticipantsRow(
+                slotId,
+                participants,
+                participants.stream().map(p -> statusKey(p.participantId(), p.status())).toList(),
+                startsAt,
+                updatedAt
+            );
+        }
+    }
+
+    public static String statusKey(String participantId, String status) {
+        return participantId + "|" + status;
+    }
+
+    public record StatusKeyInput(String statusKey) {
+    }
+
+    // Changes made at or after `since`
+    public record SlotChangesInput(String slotId, Instant since) {
+    }
+
+    // At most `limit` slots that start before `before`
+    public record StartsBeforeInput(Instant before, int limit) {
+    }
+
+    public record SlotParticipantsList(List<SlotParticipantsRow> slots) {
+
+        // Flattens the per-slot rows into the same shape ParticipantSlotsView returns
+        public SlotList toSlotList(String participantId, String status) {
+            return new SlotList(slots.stream().flatMap(row -> row.rowsFor(participantId, status).stream()).toList());
+        }
+    }
+
+    @Query("SELECT * AS slots FROM slot_participants WHERE :statusKey = ANY(statusKeys)")
+    public QueryEffect<SlotParticipantsList> getSlotsByStatusKey(StatusKeyInput input) {
+        return queryResult();
+    }
+
+    // The earliest slots that started before the given time, used to find
+    // slots to archive
+    @Query("""
+        SELECT * AS slots
+        FROM slot_participants
+        WHERE startsAt < :before
+        ORDER BY startsAt
+        LIMIT :limit
+        """)
+    public QueryEffect<SlotParticipantsList> getSlotsStartingBefore(StartsBeforeInput input) {
+        return queryResult();
+    }
+
+    // Streams the slot's row if it changed at or after `since`, then keeps streaming
+    // it every time it changes
+    @Query(
+        value = "SELECT * FROM slot_participants WHERE slotId = :slotId AND updatedAt >= :since",
+        streamUpdates = true
+    )
+    public QueryStreamEffect<SlotParticipantsRow> streamSlotChanges(SlotChangesInput input) {
+        return queryStreamResult();
+    }
+}
@@ -1,92 +1,154 @@
 package io.example.application;
 
+import akka.Done;
 import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.annotations.Consume;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.consumer.Consumer;
 import io.example.domain.BookingEvent;
+import io.example.domain.Participant.ParticipantType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 // This class is responsible for consuming events from the booking
 // slot entity and turning those into command calls on the
-// participant slot entity
-@ComponentId("booking-slot-consumer")
+// participant slot entity.
+//
+// Events are handled one at a time: the next event is only handed over once
+// the async effect of the previous one completes, so commands for a given
+// participant slot are applied in journal order. The participant slots touched
+// by a single event are distinct, so its commands (three for a booking or
+// cancellation, one for an availability change) are sent concurrently, and
+// handling an event takes one round trip rather than one per participant. How
+// fast a backlog of availability changes drains is otherwise up to the
+// runtime, which runs the consumer's slices in parallel. The participant slot
+// commands are idempotent, which makes redelivery safe.
+//
+// The component ID changed when ParticipantSlotEntity moved to key-value
+// storage. A consumer with a new ID starts from the beginning of the booking
+// slot journals, which is what populates the new participant slot state from
+// the existing history.
+@ComponentId("participant-slot-state-consumer")
 @Consume.FromEventSourcedEntity(BookingSlotEntity.class)
 public class SlotToParticipantConsumer extends Consumer {
 
     private final ComponentClient client;
+    private final FlightMetrics metrics;
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    public SlotToParticipantConsumer(ComponentClient client) {
+    public SlotToParticipantConsumer(ComponentClient client, FlightMetrics metrics) {
         this.client = client;
+        this.metrics = metrics;
     }
 
     public Effect onEvent(BookingEvent event) {
-        return switch (event) {
-            case BookingEvent.ParticipantBooked booked -> {
-                client
-                    .forEventSourcedEntity(participantSlotId(event))
-                    .method(ParticipantSlotEntity::book)
-                    .invoke(new ParticipantSlotEntity.Commands.Book(
-                        booked.slotId(),
-                        booked.participantId(),
-                        booked.participantType(),
-                        booked.bookingId()
-                    ));
-                yield effects().done();
-            }
-
-            case BookingEvent.ParticipantCanceled canceled -> {
-                client
-                    .forEventSourcedEntity(participantSlotId(event))
-                    .method(ParticipantSlotEntity::cancel)
-                    .invoke(new ParticipantSlotEntity.Commands.Cancel(
-                        canceled.slotId(),
-                        canceled.participantId(),
-                        canceled.participantType(),
-                        canceled.bookingId()
-                    ));
-                yield effects().done();
-            }
-
-            case BookingEvent.ParticipantMarkedAvailable markedAvailable -> {
-                client
-                    .forEventSourcedEntity(participantSlotId(event))
-                    .method(ParticipantSlotEntity::markAvailable)
-                    .invoke(new ParticipantSlotEntity.Commands.MarkAvailable(
-                        markedAvailable.slotId(),
-                        markedAvailable.participantId(),
-                        markedAvailable.participantType()
-                    ));
-                yield effects().done();
-            }
-
-            case BookingEvent.ParticipantUnmarkedAvailable unmarkedAvailable -> {
-                client
-                    .forEventSourcedEntity(participantSlotId(event))
-                    .method(ParticipantSlotEntity::unmarkAvailable)
-                    .invoke(new ParticipantSlotEntity.Commands.UnmarkAvailable(
-                        unmarkedAvailable.slotId(),
-                        unmarkedAvailable.participantId(),
-                        unmarkedAvailable.participantType()
-                    ));
-                yield effects().done();
-            }
+        var commands = switch (event) {
+            // A single reservation event fans out to the participant slot
+            // of each of its three participants
+            case BookingEvent.ReservationBooked booked -> List.of(
+                book(booked.slotId(), booked.studentId(), ParticipantType.STUDENT, booked.bookingId()),
+                book(booked.slotId(), booked.instructorId(), ParticipantType.INSTRUCTOR, booked.bookingId()),
+                book(booked.slotId(), booked.aircraftId(), ParticipantType.AIRCRAFT, booked.bookingId())
+            );
+
+            case BookingEvent.ReservationCanceled canceled -> List.of(
+                cancel(canceled.slotId(), canceled.studentId(), ParticipantType.STUDENT, canceled.bookingId()),
+                cancel(canceled.slotId(), canceled.instructorId(), ParticipantType.INSTRUCTOR, canceled.bookingId()),
+                cancel(canceled.slotId(), canceled.aircraftId(), ParticipantType.AIRCRAFT, canceled.bookingId())
+            );
+
+            case BookingEvent.ParticipantBooked booked -> List.of(
+                book(booked.slotId(), booked.participantId(), booked.participantType(), booked.bookingId())
+            );
+
+            case BookingEvent.ParticipantCanceled canceled -> List.of(
+                cancel(canceled.slotId(), canceled.participantId(), canceled.participantType(), canceled.bookingId())
+            );
+
+            case BookingEvent.ParticipantMarkedAvailable markedAvailable -> List.of(
+                markAvailable(markedAvailable.slotId(), markedAvailable.participantId(), markedAvailable.participantType())
+            );
+
+            case BookingEvent.ParticipantUnmarkedAvailable unmarkedAvailable -> List.of(
+                unmarkAvailable(unmarkedAvailable.slotId(), unmarkedAvailable.participantId(), unmarkedAvailable.participantType())
+            );
+
+            // Handled in journal order, after every earlier event of the slot,
+            // so the deleted participant slots can't be recreated by a late command
+            case BookingEvent.SlotArchived archived -> archived.participantIds().stream()
+                .map(participantId -> delete(archived.slotId(), participantId))
+                .toList();
         };
 
+        // Lag is measured once the participant slots are written, which is when
+        // ParticipantSlotsView can start projecting the change
+        var eventTime = ParticipantSlotsView.eventTime(messageContext().metadata());
+        var sent = commands.stream().map(CompletionStage::toCompletableFuture).toArray(CompletableFuture[]::new);
+        return effects().asyncDone(
+            CompletableFuture.allOf(sent).thenApply(done -> {
+                metrics.projected("participant-slot-state-consumer", eventTime);
+                return Done.done();
+            })
+        );
+    }
+
+    private CompletionStage<Done> book(
+        String slotId, String participantId, ParticipantType participantType, String bookingId
+    ) {
+        return client
+            .forKeyValueEntity(participantSlotId(slotId, participantId))
+            .method(ParticipantSlotEntity::book)
+            .invokeAsync(new ParticipantSlotEntity.Commands.Book(slotId, participantId, participantType, bookingId));
+    }
+
+    private CompletionStage<Done> cancel(
+        String slotId, String participantId, ParticipantType participantType, String bookingId
+    ) {
+        // Cancellations from legacy bookings may not name every participant
+        if (participantId == null) {
+            return CompletableFuture.completedFuture(Done.done());
+        }
+        logger.debug("Canceling booking {} for participant {}", bookingId, participantId);
+        return client
+            .forKeyValueEntity(participantSlotId(slotId, participantId))
+            .method(ParticipantSlotEntity::cancel)
+            .invokeAsync(new ParticipantSlotEntity.Commands.Cancel(slotId, participantId, participantType, bookingId));
+    }
+
+    private CompletionStage<Done> markAvailable(
+        String slotId, String participantId, ParticipantType participantType
+    ) {
+        return client
+            .forKeyValueEntity(participantSlotId(slotId, participantId))
+            .method(ParticipantSlotEntity::markAvailable)
+            .invokeAsync(new ParticipantSlotEntity.Commands.MarkAvailable(slotId, participantId, participantType));
+    }
+
+    private CompletionStage<Done> unmarkAvailable(
+        String slotId, String participantId, ParticipantType participantType
+    ) {
+        return client
+            .forKeyValueEntity(participantSlotId(slotId, participantId))
+            .method(ParticipantSlotEntity::unmarkAvailable)
+            .invokeAsync(new ParticipantSlotEntity.Commands.UnmarkAvailable(slotId, participantId, participantType));
+    }
+
+    private CompletionStage<Done> delete(String slotId, String participantId) {
+        return client
+            .forKeyValueEntity(participantSlotId(slotId, participantId))
+            .method(ParticipantSlotEntity::delete)
+            .invokeAsync();
     }
 
     // Participant slots are keyed by a derived key made up of
     // {slotId}-{participantId}
     // We don't need the participant type here because the participant IDs
     // should always be unique/UUIDs
-    private String participantSlotId(BookingEvent event) {
-        return switch (event) {
-            case BookingEvent.ParticipantBooked evt -> evt.slotId() + "-" + evt.participantId();
-            case BookingEvent.ParticipantUnmarkedAvailable evt -> evt.slotId() + "-" + evt.participantId();
-            case BookingEvent.ParticipantMarkedAvailable evt -> evt.slotId() + "-" + evt.participantId();
-            case BookingEvent.ParticipantCanceled evt -> evt.slotId() + "-" + evt.participantId();
-        };
+    private String participantSlotId(String slotId, String participantId) {
+        return slotId + "-" + participantId;
     }
 }
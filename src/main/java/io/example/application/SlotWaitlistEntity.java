@@ -0,0 +1,73 @@
+package io.example.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// The students waiting for a booking in one slot, keyed by the slot ID, in the
+// order they joined. Each entry names the instructor and aircraft the student
+// wants to fly with and the booking ID to book under, so that WaitlistPromoter
+// can book it as soon as all three are available without asking the student
+// again. Entries leave the waitlist when they are promoted or withdrawn.
+@ComponentId("slot-waitlist")
+public class SlotWaitlistEntity extends KeyValueEntity<SlotWaitlistEntity.State> {
+
+    public static final int MAX_ENTRIES = 100;
+
+    // Joining again replaces the student's entry but keeps its place
+    public Effect<Done> join(Entry entry) {
+        var entries = new ArrayList<>(entries());
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).studentId().equals(entry.studentId())) {
+                entries.set(i, new Entry(
+                    entry.studentId(), entry.aircraftId(), entry.instructorId(), entry.bookingId(),
+                    entries.get(i).joinedAt()
+                ));
+                return effects().updateState(new State(List.copyOf(entries))).thenReply(Done.done());
+            }
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            return effects().error("waitlist is full");
+        }
+        entries.add(entry);
+        return effects().updateState(new State(List.copyOf(entries))).thenReply(Done.done());
+    }
+
+    // Removes the student's entry, whether it was withdrawn or promoted. Removing
+    // an entry that is already gone is acknowledged, so retrying is safe.
+    public Effect<Done> leave(String studentId) {
+        var entries = entries().stream().filter(entry -> !entry.studentId().equals(studentId)).toList();
+        if (entries.size() == entries().size()) {
+            return effects().reply(Done.done());
+        }
+        if (entries.isEmpty()) {
+            return effects().deleteEntity().thenReply(Done.done());
+        }
+        return effects().updateState(new State(entries)).thenReply(Done.done());
+    }
+
+    // Deletes the waitlist once its slot has been archived
+    public Effect<Done> delete() {
+        return effects().deleteEntity().thenReply(Done.done());
+    }
+
+    public ReadOnlyEffect<State> getWaitlist() {
+        return effects().reply(new State(entries()));
+    }
+
+    private List<Entry> entries() {
+        return currentState() == null ? List.of() : currentState().entries();
+    }
+
+    public record State(List<Entry> entries) {
+    }
+
+    public record Entry(
+        String studentId, String aircraftId, String instructorId, String bookingId, Instant joinedAt
+    ) {
+    }
+}
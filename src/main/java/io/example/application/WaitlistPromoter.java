@@ -0,0 +1,137 @@
+package io.example.application;
+
+import akka.Done;
+import akka.javasdk.CommandException;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import io.example.domain.BookingEvent;
+import io.example.domain.Timeslot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+// Books waitlisted students into their slot as soon as it has room for them,
+// instead of them polling the slot. Capacity frees up when a booking is
+// canceled and its participants mark themselves available again (canceling
+// doesn't do that by itself, see Timeslot.cancelBooking), so the waitlist is
+// checked after every cancellation and every participant marked available.
+//
+// Checking reads the SlotWaitlistEntity and, if anyone is waiting, the slot,
+// and books the first entry in joining order whose student, instructor and
+// aircraft are all available, then checks again. Booking still goes through
+// BookingSlotEntity::bookSlot, so a promotion that loses a race with another
+// booking is rejected there and the entry keeps its place for the next event.
+// Entries are booked under the booking ID they joined with, which makes a
+// redelivered event harmless. Waitlists of archived slots are deleted.
+@ComponentId("slot-waitlist-promoter")
+@Consume.FromEventSourcedEntity(BookingSlotEntity.class)
+public class WaitlistPromoter extends Consumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaitlistPromoter.class);
+
+    private final ComponentClient componentClient;
+    private final FlightMetrics metrics;
+
+    public WaitlistPromoter(ComponentClient componentClient, FlightMetrics metrics) {
+        this.componentClient = componentClient;
+        this.metrics = metrics;
+    }
+
+    public Effect onEvent(BookingEvent event) {
+        var eventTime = ParticipantSlotsView.eventTime(messageContext().metadata());
+        CompletionStage<Done> handled = switch (event) {
+            case BookingEvent.ReservationCanceled canceled -> promote(componentClient, metrics, canceled.slotId());
+            case BookingEvent.ParticipantCanceled canceled -> promote(componentClient, metrics, canceled.slotId());
+            case BookingEvent.ParticipantMarkedAvailable marked -> promote(componentClient, metrics, marked.slotId());
+            case BookingEvent.SlotArchived archived -> componentClient
+                .forKeyValueEntity(archived.slotId())
+                .method(SlotWaitlistEntity::delete)
+                .invokeAsync();
+            // Nothing that takes capacity away can make an entry bookable
+            case BookingEvent.ParticipantUnmarkedAvailable unmarked -> CompletableFuture.completedFuture(Done.done());
+            case BookingEvent.ReservationBooked booked -> CompletableFuture.completedFuture(Done.done());
+            case BookingEvent.ParticipantBooked booked -> CompletableFuture.completedFuture(Done.done());
+        };
+        return effects().asyncDone(handled.thenApply(done -> {
+            metrics.projected("slot-waitlist-promoter", eventTime);
+            return done;
+        }));
+    }
+
+    // Books the waitlisted entries of the slot that are bookable now, in joining
+    // order. Also used when a student joins, in case the slot already has room.
+    public static CompletionStage<Done> promote(ComponentClient client, FlightMetrics metrics, String slotId) {
+        return client
+            .forKeyValueEntity(slotId)
+            .method(SlotWaitlistEntity::getWaitlist)
+            .invokeAsync()
+            .thenCompose(waitlist -> {
+                if (waitlist.entries().isEmpty()) {
+                    return CompletableFuture.completedFuture(Done.done());
+                }
+                return client
+                    .forEventSourcedEntity(slotId)
+                    .method(BookingSlotEntity::getSlot)
+                    .invokeAsync()
+                    .thenCompose(slot -> waitlist.entries().stream()
+                        .filter(entry -> slot.isBookable(entry.studentId(), entry.aircraftId(), entry.instructorId()))
+                        .findFirst()
+                        .map(entry -> book(client, metrics, slotId, entry)
+                            .thenCompose(booked -> booked
+                                ? promote(client, metrics, slotId)
+                                : CompletableFuture.completedFuture(Done.done())))
+                        .orElseGet(() -> leaveIfBooked(client, slotId, waitlist, slot)));
+            });
+    }
+
+    // Books the entry and removes it from the waitlist. Completes with false if
+    // the slot rejected the booking.
+    private static CompletionStage<Boolean> book(
+        ComponentClient client, FlightMetrics metrics, String slotId, SlotWaitlistEntity.Entry entry
+    ) {
+        var booking = metrics.time("promoteWaitlist", client
+            .forEventSourcedEntity(slotId)
+            .method(BookingSlotEntity::bookSlot)
+            .invokeAsync(new BookingSlotEntity.Command.BookReservation(
+                entry.studentId(), entry.aircraftId(), entry.instructorId(), entry.bookingId()
+            )));
+        return booking
+            .thenCompose(done -> {
+                logger.info("Promoted {} from the waitlist of slot {} as booking {}",
+                    entry.studentId(), slotId, entry.bookingId());
+                return leave(client, slotId, entry.studentId());
+            })
+            .thenApply(done -> true)
+            .exceptionally(error -> {
+                var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof CommandException) {
+                    return false;
+                }
+                throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+            });
+    }
+
+    // An entry whose booking is already in the slot was booked before it could
+    // be removed, e.g. by a check that failed halfway; removes it now
+    private static CompletionStage<Done> leaveIfBooked(
+        ComponentClient client, String slotId, SlotWaitlistEntity.State waitlist, Timeslot slot
+    ) {
+        return waitlist.entries().stream()
+            .filter(entry -> !slot.findBooking(entry.bookingId()).isEmpty())
+            .findFirst()
+            .map(entry -> leave(client, slotId, entry.studentId()))
+            .orElseGet(() -> CompletableFuture.completedFuture(Done.done()));
+    }
+
+    private static CompletionStage<Done> leave(ComponentClient client, String slotId, String studentId) {
+        return client
+            .forKeyValueEntity(slotId)
+            .method(SlotWaitlistEntity::leave)
+            .invokeAsync(studentId);
+    }
+}
@@ -2,6 +2,7 @@ package io.example.domain;
 
 import akka.javasdk.annotations.TypeName;
 import io.example.domain.Participant.ParticipantType;
+import java.util.List;
 
 // The list of all events emitted by the BookingSlotEntity
 public sealed interface BookingEvent {
@@ -16,6 +17,26 @@ public sealed interface BookingEvent {
       String slotId, String participantId, ParticipantType participantType)
       implements BookingEvent {}
 
+  // A booking or cancellation is a single event that names all three participants
+  @TypeName("booking-reserved")
+  record ReservationBooked(
+      String slotId, String bookingId, String studentId, String aircraftId, String instructorId)
+      implements BookingEvent {}
+
+  @TypeName("booking-canceled")
+  record ReservationCanceled(
+      String slotId, String bookingId, String studentId, String aircraftId, String instructorId)
+      implements BookingEvent {}
+
+  // The slot has passed and was archived; the entity is deleted after this
+  // event. `participantIds` are all participants that ever had a status in the
+  // slot, so that the derived participant slots can be deleted too.
+  @TypeName("slot-archived")
+  record SlotArchived(String slotId, List<String> participantIds) implements BookingEvent {}
+
+  // Per-participant booking events are no longer emitted, but journals written
+  // before ReservationBooked/ReservationCanceled still contain them, so they
+  // are still replayed.
   @TypeName("reservation-booked")
   record ParticipantBooked(
       String slotId, String participantId, ParticipantType participantType, String bookingId)
@@ -1,11 +1,69 @@
 package io.example.domain;
 
+import java.lang.ref.WeakReference;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 // A tuple-style class that holds a participant ID and the corresponding
 // type: student, instructor, or aircraft.
+//
+// The same participants appear in many slots, so slots hold a single shared
+// instance per participant, obtained through `of`. The table of shared
+// instances only holds them weakly, keyed by the instance's own ID, so a
+// participant drops out of it once no slot in memory refers to it. Participants
+// are still compared by value, so instances created with the constructor (e.g.
+// in commands) work everywhere.
 public record Participant(String id, ParticipantType participantType) {
   public enum ParticipantType {
     STUDENT,
     INSTRUCTOR,
     AIRCRAFT
   }
+
+  // Guarded by the per-type map itself
+  private static final Map<ParticipantType, Map<String, WeakReference<Participant>>> INTERNED =
+      new EnumMap<>(ParticipantType.class);
+
+  static {
+    for (ParticipantType type : ParticipantType.values()) {
+      INTERNED.put(type, new WeakHashMap<>());
+    }
+  }
+
+  // Returns the shared instance for the participant, creating it if needed
+  public static Participant of(String id, ParticipantType participantType) {
+    if (id == null || participantType == null) {
+      return new Participant(id, participantType);
+    }
+    var interned = INTERNED.get(participantType);
+    synchronized (interned) {
+      var ref = interned.get(id);
+      var participant = ref == null ? null : ref.get();
+      if (participant == null) {
+        participant = new Participant(id, participantType);
+        // The participant holds its key strongly, keeping the entry alive
+        interned.put(participant.id(), new WeakReference<>(participant));
+      }
+      return participant;
+    }
+  }
+
+  // Returns the shared instance for the participant, or null if no live
+  // object holds it, in which case no slot does either. Lets lookups avoid
+  // both allocating and growing the table.
+  static Participant existing(String id, ParticipantType participantType) {
+    if (id == null || participantType == null) {
+      return null;
+    }
+    var interned = INTERNED.get(participantType);
+    synchronized (interned) {
+      var ref = interned.get(id);
+      return ref == null ? null : ref.get();
+    }
+  }
+
+  public Participant intern() {
+    return of(id, participantType);
+  }
 }
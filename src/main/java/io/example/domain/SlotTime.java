@@ -0,0 +1,48 @@
+package io.example.domain;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Optional;
+
+// Slot IDs are opaque, but deployments may name them after the local date and
+// start hour of the slot, e.g. `2025-08-08-09` for August 8th, 2025 at 9am.
+// This parses that convention into a sortable start time. Slot times are local
+// wall-clock times, so they are represented as the instant at which that
+// wall-clock time occurs in UTC; only compare them with other slot times.
+public final class SlotTime {
+
+  private static final DateTimeFormatter SLOT_ID_FORMAT =
+      DateTimeFormatter.ofPattern("uuuu-MM-dd-HH").withResolverStyle(ResolverStyle.STRICT);
+
+  private SlotTime() {}
+
+  // The start time of a slot, or empty if its ID doesn't follow the convention
+  public static Optional<Instant> startOf(String slotId) {
+    try {
+      return Optional.of(toInstant(LocalDateTime.parse(slotId, SLOT_ID_FORMAT)));
+    } catch (DateTimeParseException | NullPointerException e) {
+      return Optional.empty();
+    }
+  }
+
+  // Parses a time given either in slot ID form or as an ISO-8601 local date-time
+  public static Optional<Instant> parse(String value) {
+    return startOf(value)
+        .or(
+            () -> {
+              try {
+                return Optional.of(toInstant(LocalDateTime.parse(value)));
+              } catch (DateTimeParseException | NullPointerException e) {
+                return Optional.empty();
+              }
+            });
+  }
+
+  public static Instant toInstant(LocalDateTime localTime) {
+    return localTime.toInstant(ZoneOffset.UTC);
+  }
+}
@@ -1,39 +1,178 @@
 package io.example.domain;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.example.domain.Participant.ParticipantType;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.pcollections.HashTreePMap;
+import org.pcollections.HashTreePSet;
+import org.pcollections.PMap;
+import org.pcollections.PSet;
 
-// The Timeslot is a core domain object. It maintains two internal sets:
+// The Timeslot is a core domain object. It maintains two internal collections:
 // the list of bookings and the list of participants available for booking.
-// As bookings and availability are added and removed, the contents of those
-// sets are shifted from one to the other.
-public record Timeslot(Set<Booking> bookings, Set<Participant> available) {
+// As bookings and availability are added and removed, participants are shifted
+// from one to the other.
+//
+// Bookings are indexed both by participant and by booking ID so that every
+// command check and event transition is a constant-time lookup. Only the
+// bookings and available participants are serialized; the indexes are rebuilt
+// when the slot is read back.
+//
+// The serialized form is what BookingSlotEntity snapshots, so it is kept
+// compact: `booked` maps each booking ID to its participants and `waiting`
+// lists the available ones, each participant written as a type code and ID
+// (`s:student-1`). The endpoint returns the API form (`bookings` and
+// `available`, one object per participant), which is also still read here, so
+// snapshots taken before the compact form and API responses both load.
+//
+// A Timeslot is immutable. Its collections are persistent hash tries, so every
+// transition returns a new Timeslot that shares all untouched structure with
+// the previous one instead of copying or mutating it.
+//
+// Many slots are held in memory at once and the same participants recur across
+// them, so slots only hold shared Participant instances (see Participant.of) and
+// booking IDs. Booking objects are created on demand when bookings are read.
+public final class Timeslot {
 
-  public Timeslot reserve(BookingEvent.ParticipantMarkedAvailable reserved) {
-    available.add(new Participant(reserved.participantId(), reserved.participantType()));
+  private static final Timeslot EMPTY =
+      new Timeslot(HashTreePMap.empty(), HashTreePMap.empty(), HashTreePSet.empty());
+
+  private final PMap<Participant, String> bookingIdByParticipant;
+  private final PMap<String, List<Participant>> participantsByBookingId;
+  private final PSet<Participant> available;
 
-    return new Timeslot(bookings, available);
+  private Timeslot(
+      PMap<Participant, String> bookingIdByParticipant,
+      PMap<String, List<Participant>> participantsByBookingId,
+      PSet<Participant> available) {
+    this.bookingIdByParticipant = bookingIdByParticipant;
+    this.participantsByBookingId = participantsByBookingId;
+    this.available = available;
   }
 
-  public Timeslot unreserve(BookingEvent.ParticipantUnmarkedAvailable unreserved) {
-    available.remove(new Participant(unreserved.participantId(), unreserved.participantType()));
+  public static Timeslot of(Collection<Booking> bookings, Collection<Participant> available) {
+    return of(bookings, available, null, null);
+  }
+
+  @JsonCreator
+  static Timeslot of(
+      @JsonProperty("bookings") Collection<Booking> bookings,
+      @JsonProperty("available") Collection<Participant> available,
+      @JsonProperty("booked") Map<String, List<String>> booked,
+      @JsonProperty("waiting") Collection<String> waiting) {
+    Timeslot slot = EMPTY;
+    if (waiting != null) {
+      slot =
+          slot.withAvailable(
+              slot.available.plusAll(waiting.stream().map(Timeslot::decode).toList()));
+    }
+    if (booked != null) {
+      for (Map.Entry<String, List<String>> booking : booked.entrySet()) {
+        for (String participant : booking.getValue()) {
+          slot = slot.withBooking(decode(participant), booking.getKey());
+        }
+      }
+    }
+    if (available != null) {
+      slot =
+          slot.withAvailable(
+              HashTreePSet.from(available.stream().map(Participant::intern).toList()));
+    }
+    if (bookings != null) {
+      for (Booking booking : bookings) {
+        slot = slot.withBooking(booking.participant().intern(), booking.bookingId());
+      }
+    }
+    return slot;
+  }
 
-    return new Timeslot(bookings, available);
+  public static Timeslot empty() {
+    return EMPTY;
+  }
+
+  public Collection<Booking> bookings() {
+    return bookingIdByParticipant.entrySet().stream()
+        .map(entry -> new Booking(entry.getKey(), entry.getValue()))
+        .toList();
+  }
+
+  public Set<Participant> available() {
+    return available;
+  }
+
+  @JsonProperty("booked")
+  Map<String, List<String>> booked() {
+    Map<String, List<String>> booked = new LinkedHashMap<>();
+    participantsByBookingId.forEach(
+        (bookingId, participants) ->
+            booked.put(bookingId, participants.stream().map(Timeslot::encode).toList()));
+    return booked;
+  }
+
+  @JsonProperty("waiting")
+  List<String> waiting() {
+    return available.stream().map(Timeslot::encode).toList();
+  }
+
+  public Timeslot reserve(BookingEvent.ParticipantMarkedAvailable reserved) {
+    return withAvailable(
+        available.plus(Participant.of(reserved.participantId(), reserved.participantType())));
+  }
+
+  public Timeslot unreserve(BookingEvent.ParticipantUnmarkedAvailable unreserved) {
+    Participant p = Participant.existing(unreserved.participantId(), unreserved.participantType());
+    return p == null ? this : withAvailable(available.minus(p));
   }
 
   public Timeslot book(BookingEvent.ParticipantBooked booked) {
-    Participant p = new Participant(booked.participantId(), booked.participantType());
-    available.remove(p);
-    bookings.add(new Booking(p, booked.bookingId()));
+    Participant p = Participant.of(booked.participantId(), booked.participantType());
+    return withAvailable(available.minus(p)).withBooking(p, booked.bookingId());
+  }
 
-    return new Timeslot(bookings, available);
+  // Moves all three participants of a reservation from available to booked
+  public Timeslot book(BookingEvent.ReservationBooked booked) {
+    Participant student = Participant.of(booked.studentId(), ParticipantType.STUDENT);
+    Participant aircraft = Participant.of(booked.aircraftId(), ParticipantType.AIRCRAFT);
+    Participant instructor = Participant.of(booked.instructorId(), ParticipantType.INSTRUCTOR);
+    return withAvailable(available.minus(student).minus(aircraft).minus(instructor))
+        .withBooking(student, booked.bookingId())
+        .withBooking(instructor, booked.bookingId())
+        .withBooking(aircraft, booked.bookingId());
+  }
+
+  // Applies any booking slot event. This is the entity's event handler, kept
+  // here so that replay can be exercised without an entity.
+  public Timeslot apply(BookingEvent event) {
+    return switch (event) {
+      case BookingEvent.ParticipantMarkedAvailable available -> reserve(available);
+      case BookingEvent.ParticipantUnmarkedAvailable unavailable -> unreserve(unavailable);
+      case BookingEvent.ReservationBooked booked -> book(booked);
+      case BookingEvent.ReservationCanceled cancelled -> cancelBooking(cancelled.bookingId());
+      case BookingEvent.SlotArchived archived -> EMPTY;
+      // Legacy per-participant events from journals written before ReservationBooked
+      case BookingEvent.ParticipantBooked booked -> book(booked);
+      case BookingEvent.ParticipantCanceled cancelled -> cancelBooking(cancelled.bookingId());
+    };
   }
 
   // Checks to see if the given participant is among those marked as available
   public boolean isWaiting(String participantId, ParticipantType participantType) {
-    return available.contains(new Participant(participantId, participantType));
+    // Available participants are always shared instances, so a participant
+    // without one can't be available
+    Participant p = Participant.existing(participantId, participantType);
+    return p != null && available.contains(p);
+  }
+
+  // Checks to see if the given participant already holds a booking in this slot
+  public boolean isBooked(Participant participant) {
+    return bookingIdByParticipant.containsKey(participant);
   }
 
   public boolean isBookable(String studentId, String aircraftId, String instructorId) {
@@ -46,15 +185,91 @@ public record Timeslot(Set<Booking> bookings, Set<Participant> available) {
   // be 3 participants for a single booking, so this will usually return no items
   // or 3 items.
   public List<Booking> findBooking(String bookingId) {
-    return bookings.stream().filter(b -> b.bookingId().equals(bookingId)).toList();
+    List<Participant> participants = participantsByBookingId.get(bookingId);
+    if (participants == null) {
+      return List.of();
+    }
+    return participants.stream().map(p -> new Booking(p, bookingId)).toList();
   }
 
   // Removes all three participants of a booking from the booking list. It does
   // not automatically mark them as available for that slot.
   public Timeslot cancelBooking(String bookingId) {
-    Set<Booking> books =
-        bookings.stream().filter(b -> !b.bookingId().equals(bookingId)).collect(Collectors.toSet());
-    return new Timeslot(books, available);
+    List<Participant> removed = participantsByBookingId.get(bookingId);
+    if (removed == null) {
+      return this;
+    }
+    return new Timeslot(
+        bookingIdByParticipant.minusAll(removed),
+        participantsByBookingId.minus(bookingId),
+        available);
+  }
+
+  private Timeslot withAvailable(PSet<Participant> newAvailable) {
+    if (newAvailable == available) {
+      return this;
+    }
+    return new Timeslot(bookingIdByParticipant, participantsByBookingId, newAvailable);
+  }
+
+  // Participant lists per booking ID hold at most three entries, so copying
+  // them on change is constant-time.
+  private Timeslot withBooking(Participant participant, String bookingId) {
+    PMap<String, List<Participant>> byId = participantsByBookingId;
+    String previous = bookingIdByParticipant.get(participant);
+    if (previous != null) {
+      byId = withoutParticipant(byId, previous, participant);
+    }
+    List<Participant> sameId = byId.getOrDefault(bookingId, List.of());
+    byId = byId.plus(bookingId, Stream.concat(sameId.stream(), Stream.of(participant)).toList());
+    return new Timeslot(bookingIdByParticipant.plus(participant, bookingId), byId, available);
+  }
+
+  private static PMap<String, List<Participant>> withoutParticipant(
+      PMap<String, List<Participant>> byId, String bookingId, Participant participant) {
+    List<Participant> remaining =
+        byId.getOrDefault(bookingId, List.of()).stream()
+            .filter(p -> !p.equals(participant))
+            .toList();
+    return remaining.isEmpty() ? byId.minus(bookingId) : byId.plus(bookingId, remaining);
+  }
+
+  private static String encode(Participant participant) {
+    char code =
+        switch (participant.participantType()) {
+          case STUDENT -> 's';
+          case INSTRUCTOR -> 'i';
+          case AIRCRAFT -> 'a';
+        };
+    return code + ":" + participant.id();
+  }
+
+  private static Participant decode(String participant) {
+    ParticipantType type =
+        switch (participant.charAt(0)) {
+          case 's' -> ParticipantType.STUDENT;
+          case 'i' -> ParticipantType.INSTRUCTOR;
+          case 'a' -> ParticipantType.AIRCRAFT;
+          default -> throw new IllegalArgumentException("unknown participant " + participant);
+        };
+    return Participant.of(participant.substring(2), type);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Timeslot other
+        && bookingIdByParticipant.equals(other.bookingIdByParticipant)
+        && available.equals(other.available);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(bookingIdByParticipant, available);
+  }
+
+  @Override
+  public String toString() {
+    return "Timeslot[bookings=" + bookings() + ", available=" + available + "]";
   }
 
   public record Booking(Participant participant, String bookingId) {}
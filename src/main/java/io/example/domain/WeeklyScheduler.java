@@ -0,0 +1,288 @@
+package io.example.domain;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Plans a batch of lessons across a range of slots, e.g. a week. Each lesson
+// needs the student, an instructor and an aircraft available in the same slot,
+// so a slot can hold as many lessons as it has instructors or aircraft,
+// whichever is fewer. Students ask for a number of lessons each and fly at
+// most `maxLessonsPerDay` of them on any day.
+//
+// Every lesson uses one aircraft for one slot, so maximizing aircraft
+// utilization means scheduling as many lessons as possible. That is a maximum
+// flow from the students through their days to the slots they are available
+// in, which is solved exactly. The work before and after the flow is
+// independent per day and runs in parallel on the common fork-join pool: each
+// day's slots are turned into flow edges, and each day's scheduled lessons are
+// paired with that slot's instructors and aircraft. The flow itself couples all
+// days through the students' lesson counts, so it is solved once for the
+// whole range.
+//
+// The plan is only as current as the availability it was computed from;
+// committing it still books each lesson through BookingSlotEntity.
+public final class WeeklyScheduler {
+
+  // The participants available in a slot; only slots whose IDs follow the
+  // `2025-08-08-09` convention can be scheduled
+  public record SlotAvailability(
+      String slotId, List<String> students, List<String> instructors, List<String> aircraft) {}
+
+  public record LessonRequest(String studentId, int lessons) {}
+
+  public record Lesson(String slotId, String studentId, String instructorId, String aircraftId) {}
+
+  // `unscheduled` is the number of requested lessons per student that could not
+  // be placed, for students with any
+  public record Plan(List<Lesson> lessons, Map<String, Integer> unscheduled) {}
+
+  private WeeklyScheduler() {}
+
+  public static Plan plan(
+      List<SlotAvailability> slots, List<LessonRequest> requests, int maxLessonsPerDay) {
+    var demand = new LinkedHashMap<String, Integer>();
+    requests.forEach(request -> demand.merge(request.studentId(), request.lessons(), Integer::sum));
+    var students = List.copyOf(demand.keySet());
+    var studentIndex = new HashMap<String, Integer>();
+    for (int i = 0; i < students.size(); i++) {
+      studentIndex.put(students.get(i), i);
+    }
+
+    // Slot partitions by day, in start order
+    var days =
+        slots.stream()
+            .filter(slot -> SlotTime.startOf(slot.slotId()).isPresent())
+            .sorted((a, b) -> a.slotId().compareTo(b.slotId()))
+            .collect(
+                Collectors.groupingBy(
+                    slot -> slot.slotId().substring(0, 10),
+                    LinkedHashMap::new,
+                    Collectors.toList()));
+    var partitions = List.copyOf(days.values());
+
+    var candidates =
+        partitions.parallelStream().map(day -> candidates(day, studentIndex)).toList();
+
+    var flow = new Flow(students, demand, candidates, maxLessonsPerDay);
+    flow.solve();
+
+    var lessons =
+        IntStream.range(0, partitions.size())
+            .parallel()
+            .mapToObj(d -> pair(candidates.get(d), flow.assigned(d)))
+            .flatMap(List::stream)
+            .toList();
+
+    var unscheduled = new LinkedHashMap<String, Integer>();
+    var scheduled =
+        lessons.stream().collect(Collectors.groupingBy(Lesson::studentId, Collectors.counting()));
+    demand.forEach(
+        (studentId, lessonCount) -> {
+          int missing = lessonCount - scheduled.getOrDefault(studentId, 0L).intValue();
+          if (missing > 0) {
+            unscheduled.put(studentId, missing);
+          }
+        });
+    return new Plan(lessons, unscheduled);
+  }
+
+  // A day's slots with their capacity and the requesting students available
+  // in each, by index
+  private record DayCandidates(List<SlotAvailability> slots, int[] capacity, int[][] students) {}
+
+  private static DayCandidates candidates(
+      List<SlotAvailability> day, Map<String, Integer> studentIndex) {
+    var capacity = new int[day.size()];
+    var students = new int[day.size()][];
+    for (int t = 0; t < day.size(); t++) {
+      var slot = day.get(t);
+      capacity[t] = Math.min(distinct(slot.instructors()).size(), distinct(slot.aircraft()).size());
+      students[t] =
+          distinct(slot.students()).stream()
+              .map(studentIndex::get)
+              .filter(Objects::nonNull)
+              .mapToInt(Integer::intValue)
+              .toArray();
+    }
+    return new DayCandidates(day, capacity, students);
+  }
+
+  // Gives each student scheduled in a slot one of its instructors and aircraft
+  private static List<Lesson> pair(DayCandidates day, List<List<String>> assigned) {
+    var lessons = new ArrayList<Lesson>();
+    for (int t = 0; t < day.slots().size(); t++) {
+      var slot = day.slots().get(t);
+      var instructors = List.copyOf(distinct(slot.instructors()));
+      var aircraft = List.copyOf(distinct(slot.aircraft()));
+      var studentIds = assigned.get(t);
+      for (int i = 0; i < studentIds.size(); i++) {
+        lessons.add(
+            new Lesson(slot.slotId(), studentIds.get(i), instructors.get(i), aircraft.get(i)));
+      }
+    }
+    return lessons;
+  }
+
+  private static LinkedHashSet<String> distinct(List<String> ids) {
+    return new LinkedHashSet<>(ids);
+  }
+
+  // Dinic's maximum flow over source -> student -> student-day -> slot -> sink.
+  // Student-day nodes exist only for the days a student is available in.
+  private static final class Flow {
+    private static final int SOURCE = 0;
+    private static final int SINK = 1;
+
+    private final List<String> students;
+    private final int[][] slotNodes;
+    // Per student-day -> slot edge: its index, the student, the day and the slot
+    private final List<int[]> placements = new ArrayList<>();
+    private final List<int[]> placementEdges = new ArrayList<>();
+
+    private int nodes = 2;
+    private int[] head;
+    private int[] to = new int[64];
+    private int[] next = new int[64];
+    private int[] residual = new int[64];
+    private int edges;
+    private int[] level;
+    private int[] cursor;
+
+    Flow(
+        List<String> students,
+        Map<String, Integer> demand,
+        List<DayCandidates> days,
+        int maxLessonsPerDay) {
+      this.students = students;
+      int studentBase = nodes;
+      nodes += students.size();
+      slotNodes = new int[days.size()][];
+      for (int d = 0; d < days.size(); d++) {
+        slotNodes[d] = new int[days.get(d).slots().size()];
+        for (int t = 0; t < slotNodes[d].length; t++) {
+          slotNodes[d][t] = nodes++;
+        }
+      }
+      var dayNodes = new HashMap<Long, Integer>();
+      for (int d = 0; d < days.size(); d++) {
+        var day = days.get(d);
+        for (int t = 0; t < day.slots().size(); t++) {
+          if (day.capacity()[t] == 0) {
+            continue;
+          }
+          for (int s : day.students()[t]) {
+            long key = (long) s * days.size() + d;
+            var dayNode = dayNodes.get(key);
+            if (dayNode == null) {
+              dayNode = nodes++;
+              dayNodes.put(key, dayNode);
+            }
+            // Placement edges are added first, two entries (edge and reverse) each
+            placements.add(new int[] {2 * placementEdges.size(), s, d, t});
+            placementEdges.add(new int[] {dayNode, slotNodes[d][t]});
+          }
+        }
+      }
+      head = new int[nodes];
+      Arrays.fill(head, -1);
+      for (var edge : placementEdges) {
+        addEdge(edge[0], edge[1], 1);
+      }
+      for (int s = 0; s < students.size(); s++) {
+        addEdge(SOURCE, studentBase + s, demand.get(students.get(s)));
+      }
+      dayNodes.forEach(
+          (key, dayNode) ->
+              addEdge(studentBase + (int) (key / days.size()), dayNode, maxLessonsPerDay));
+      for (int d = 0; d < days.size(); d++) {
+        for (int t = 0; t < slotNodes[d].length; t++) {
+          addEdge(slotNodes[d][t], SINK, days.get(d).capacity()[t]);
+        }
+      }
+    }
+
+    void solve() {
+      level = new int[nodes];
+      cursor = new int[nodes];
+      while (levelGraph()) {
+        System.arraycopy(head, 0, cursor, 0, nodes);
+        while (augment(SOURCE, Integer.MAX_VALUE) > 0) {}
+      }
+    }
+
+    // The students scheduled in each slot of day `d`
+    List<List<String>> assigned(int d) {
+      var assigned = new ArrayList<List<String>>();
+      for (int t = 0; t < slotNodes[d].length; t++) {
+        assigned.add(new ArrayList<>());
+      }
+      for (var placement : placements) {
+        if (placement[2] == d && residual[placement[0]] == 0) {
+          assigned.get(placement[3]).add(students.get(placement[1]));
+        }
+      }
+      return assigned;
+    }
+
+    // Each edge is stored with its reverse at the next index
+    private void addEdge(int from, int target, int capacity) {
+      if (edges + 2 > to.length) {
+        to = Arrays.copyOf(to, to.length * 2);
+        next = Arrays.copyOf(next, next.length * 2);
+        residual = Arrays.copyOf(residual, residual.length * 2);
+      }
+      to[edges] = target;
+      residual[edges] = capacity;
+      next[edges] = head[from];
+      head[from] = edges++;
+      to[edges] = from;
+      residual[edges] = 0;
+      next[edges] = head[target];
+      head[target] = edges++;
+    }
+
+    private boolean levelGraph() {
+      Arrays.fill(level, -1);
+      level[SOURCE] = 0;
+      var queue = new ArrayDeque<Integer>();
+      queue.add(SOURCE);
+      while (!queue.isEmpty()) {
+        int node = queue.poll();
+        for (int e = head[node]; e >= 0; e = next[e]) {
+          if (residual[e] > 0 && level[to[e]] < 0) {
+            level[to[e]] = level[node] + 1;
+            queue.add(to[e]);
+          }
+        }
+      }
+      return level[SINK] >= 0;
+    }
+
+    private int augment(int node, int limit) {
+      if (node == SINK) {
+        return limit;
+      }
+      for (; cursor[node] >= 0; cursor[node] = next[cursor[node]]) {
+        int e = cursor[node];
+        if (residual[e] > 0 && level[to[e]] == level[node] + 1) {
+          int pushed = augment(to[e], Math.min(limit, residual[e]));
+          if (pushed > 0) {
+            residual[e] -= pushed;
+            residual[e ^ 1] += pushed;
+            return pushed;
+          }
+        }
+      }
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package io.example.api;
+
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import io.example.application.ParticipantSlotsView;
+import io.example.application.ParticipantSlotsView.SlotList;
+import io.example.application.ParticipantSlotsView.SlotRow;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Runs the endpoint with `flight.read-model.pipeline = direct`, so that
+// GET /flight/slots/{participantId}/{status} is served by SlotParticipantsView,
+// and checks that it returns the same slots as the participant-entity pipeline,
+// whose ParticipantSlotsView is maintained alongside it.
+public class FlightEndpointDirectReadModelIntegrationTest extends TestKitSupport {
+
+    @Override
+    protected TestKit.Settings testKitSettings() {
+        return TestKit.Settings.DEFAULT.withAdditionalConfig("flight.read-model.pipeline = direct");
+    }
+
+    @Test
+    public void directPipelineMatchesParticipantEntityPipeline() {
+        var runId = UUID.randomUUID().toString();
+        var studentId = "student-" + runId;
+        var instructorId = "instructor-" + runId;
+        var aircraftId = "aircraft-" + runId;
+        var booked = runId + "-booked";
+        var canceled = runId + "-canceled";
+        var studentOnly = runId + "-student-only";
+
+        for (var slotId : List.of(booked, canceled)) {
+            markAvailable(slotId, studentId, "student");
+            markAvailable(slotId, instructorId, "instructor");
+            markAvailable(slotId, aircraftId, "aircraft");
+        }
+        markAvailable(studentOnly, studentId, "student");
+        for (var slotId : List.of(booked, canceled)) {
+            httpClient
+                .POST("/flight/bookings/" + slotId)
+                .withRequestBody(new FlightEndpoint.BookingRequest(studentId, aircraftId, instructorId, slotId))
+                .invoke();
+        }
+        httpClient.DELETE("/flight/bookings/" + canceled + "/" + canceled).invoke();
+
+        // Canceling doesn't make the participants available again
+        assertSamePipelines(studentId, "available", List.of(studentOnly));
+        assertSamePipelines(studentId, "booked", List.of(booked));
+        assertSamePipelines(instructorId, "available", List.of());
+        assertSamePipelines(instructorId, "booked", List.of(booked));
+    }
+
+    private void assertSamePipelines(String participantId, String status, List<String> expectedSlotIds) {
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var direct = httpClient
+                .GET("/flight/slots/" + participantId + "/" + status)
+                .responseBodyAs(SlotList.class)
+                .invoke()
+                .body();
+            var participantEntity = componentClient
+                .forView()
+                .method(ParticipantSlotsView::getSlotsByParticipantAndStatus)
+                .invoke(new ParticipantSlotsView.ParticipantStatusInput(participantId, status));
+
+            assertEquals(expectedSlotIds, comparable(participantEntity).stream().map(SlotRow::slotId).toList());
+            assertEquals(comparable(participantEntity), comparable(direct));
+        });
+    }
+
+    // Rows in slot order, without `updatedAt`: the direct pipeline reports when
+    // the slot last changed rather than when the participant did
+    private static List<SlotRow> comparable(SlotList slots) {
+        return slots.slots().stream()
+            .map(row -> new SlotRow(
+                row.slotId(), row.participantId(), row.participantType(), row.bookingId(), row.status(), row.startsAt(), null
+            ))
+            .sorted(Comparator.comparing(SlotRow::slotId))
+            .toList();
+    }
+
+    private void markAvailable(String slotId, String participantId, String participantType) {
+        httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(participantId, participantType))
+            .invoke();
+    }
+}
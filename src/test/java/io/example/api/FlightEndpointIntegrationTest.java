@@ -1,19 +1,46 @@
 package io.example.api;
 
 import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.model.sse.ServerSentEvent;
+import akka.javasdk.JsonSupport;
 import akka.javasdk.testkit.TestKitSupport;
+import io.example.application.BlockBookingWorkflow;
+import io.example.application.BookableIndex;
 import io.example.application.ParticipantSlotsView;
+import io.example.application.SlotAvailabilityView;
+import io.example.application.SlotCache;
+import io.example.application.SlotCapacityView;
+import io.example.application.SlotWaitlistEntity;
+import io.example.domain.Participant.ParticipantType;
+import io.example.domain.Timeslot;
+import io.example.domain.WeeklyScheduler;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FlightEndpointIntegrationTest extends TestKitSupport {
 
+    private static final DateTimeFormatter SLOT_ID_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd-HH");
+
     @Test
     public void availabilityEndpointRejectsInvalidParticipantType() {
         String slotId = UUID.randomUUID().toString();
@@ -226,4 +253,487 @@ public class FlightEndpointIntegrationTest extends TestKitSupport {
             assertTrue(response.body().slots().isEmpty());
         });
     }
+
+    @Test
+    public void participantEventsResumeFromLastEventId() throws Exception {
+        String runId = UUID.randomUUID().toString();
+        String participantId = "student-" + runId;
+        String path = "/flight/participants/" + participantId + "/events";
+        var sse = testKit.getSelfSseRouteTester();
+
+        for (var slotId : List.of(runId + "-first", runId + "-second")) {
+            httpClient
+                .POST("/flight/availability/" + slotId)
+                .withRequestBody(new FlightEndpoint.AvailabilityRequest(participantId, "student"))
+                .invoke();
+        }
+        var initial = sse.receiveFirstN(path, 2, Duration.ofSeconds(10));
+        assertTrue(initial.stream().allMatch(event -> event.getEventType().equals(Optional.of("slot-row"))));
+        var lastEventId = initial.stream()
+            .map(event -> event.getId().orElseThrow())
+            .max(Comparator.comparing(Instant::parse))
+            .orElseThrow();
+        var lastSlotId = initial.stream()
+            .filter(event -> event.getId().orElseThrow().equals(lastEventId))
+            .map(event -> slotRow(event).slotId())
+            .findFirst()
+            .orElseThrow();
+
+        httpClient
+            .POST("/flight/availability/" + runId + "-third")
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(participantId, "student"))
+            .invoke();
+
+        // The change at the resume offset is sent again, the earlier one is not
+        var resumed = sse.receiveNFromOffset(path, 2, lastEventId, Duration.ofSeconds(10));
+        var resumedSlotIds = resumed.stream().map(event -> slotRow(event).slotId()).sorted().toList();
+        assertEquals(Stream.of(lastSlotId, runId + "-third").sorted().toList(), resumedSlotIds);
+    }
+
+    @Test
+    public void manyConcurrentRequestsAllSucceed() throws Exception {
+        // Only checks that a burst of concurrent requests is served without
+        // errors; it doesn't measure how many are in flight at once
+        int inFlight = 2_000;
+        String runId = UUID.randomUUID().toString();
+
+        var responses = IntStream.range(0, inFlight)
+            .mapToObj(i -> httpClient
+                .POST("/flight/availability/" + runId + "-" + i)
+                .withRequestBody(new FlightEndpoint.AvailabilityRequest("student-" + i, "student"))
+                .invokeAsync()
+                .toCompletableFuture())
+            .toList();
+
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+
+        for (var response : responses) {
+            assertEquals(StatusCodes.OK, response.get().status());
+        }
+    }
+
+    @Test
+    public void rejectedCommandReportsEntityMessage() {
+        String slotId = UUID.randomUUID().toString();
+
+        httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest("student-1", "student"))
+            .invoke();
+        var response = httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest("student-1", "student"))
+            .invoke();
+
+        assertEquals(StatusCodes.BAD_REQUEST, response.status());
+        assertTrue(response.body().utf8String().contains("participant already available"));
+    }
+
+    @Test
+    public void participantSlotsArePaged() {
+        String participantId = UUID.randomUUID().toString();
+        String runId = UUID.randomUUID().toString();
+        int slots = 5;
+
+        for (int i = 0; i < slots; i++) {
+            httpClient
+                .POST("/flight/availability/" + runId + "-" + i)
+                .withRequestBody(new FlightEndpoint.AvailabilityRequest(participantId, "aircraft"))
+                .invoke();
+        }
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var first = httpClient
+                .GET("/flight/slots/" + participantId + "/available/page?pageSize=3")
+                .responseBodyAs(ParticipantSlotsView.SlotPage.class)
+                .invoke()
+                .body();
+            assertEquals(3, first.slots().size());
+            assertTrue(first.hasMore());
+
+            var second = httpClient
+                .GET("/flight/slots/" + participantId + "/available/page?pageSize=3&pageToken=" + first.nextPageToken())
+                .responseBodyAs(ParticipantSlotsView.SlotPage.class)
+                .invoke()
+                .body();
+            assertEquals(2, second.slots().size());
+            assertFalse(second.hasMore());
+        });
+    }
+
+    @Test
+    public void participantSlotsInTimeRange() {
+        String participantId = UUID.randomUUID().toString();
+
+        for (String slotId : new String[]{"2031-01-05-09", "2031-01-06-09", "2031-01-06-14", "2031-01-08-09"}) {
+            httpClient
+                .POST("/flight/availability/" + slotId)
+                .withRequestBody(new FlightEndpoint.AvailabilityRequest(participantId, "instructor"))
+                .invoke();
+        }
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var response = httpClient
+                .GET("/flight/slots/" + participantId + "/available/range?from=2031-01-06-00&to=2031-01-07T00:00")
+                .responseBodyAs(ParticipantSlotsView.SlotList.class)
+                .invoke();
+
+            var slotIds = response.body().slots().stream().map(ParticipantSlotsView.SlotRow::slotId).toList();
+            assertEquals(List.of("2031-01-06-09", "2031-01-06-14"), slotIds);
+        });
+    }
+
+    @Test
+    public void availableParticipantsInTimeRange() {
+        String runId = UUID.randomUUID().toString();
+        String instructorId = "instructor-" + runId;
+        String studentId = "student-" + runId;
+
+        for (String slotId : new String[]{"2033-02-01-09", "2033-02-01-10", "2033-02-02-09"}) {
+            httpClient
+                .POST("/flight/availability/" + slotId)
+                .withRequestBody(new FlightEndpoint.AvailabilityRequest(instructorId, "instructor"))
+                .invoke();
+        }
+        httpClient
+            .POST("/flight/availability/2033-02-01-10")
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(studentId, "student"))
+            .invoke();
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var slots = httpClient
+                .GET("/flight/availability?from=2033-02-01-00&to=2033-02-02-00&participantType=instructor")
+                .responseBodyAs(SlotAvailabilityView.SlotAvailabilityList.class)
+                .invoke()
+                .body()
+                .slots();
+
+            assertEquals(List.of("2033-02-01-09", "2033-02-01-10"), slots.stream().map(SlotAvailabilityView.SlotAvailabilityRow::slotId).toList());
+            assertTrue(slots.stream().allMatch(slot -> slot.instructors().contains(instructorId)));
+            // Only the requested type is returned
+            assertTrue(slots.stream().allMatch(slot -> slot.students().isEmpty()));
+        });
+    }
+
+    @Test
+    public void capacityForMonth() {
+        var booked = participants();
+        var waiting = participants();
+        markAvailable("2033-04-10-09", booked);
+        httpClient
+            .POST("/flight/availability/2033-04-10-09")
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(waiting.studentId(), "student"))
+            .invoke();
+        httpClient
+            .POST("/flight/bookings/2033-04-10-09")
+            .withRequestBody(booked.bookingRequest(UUID.randomUUID().toString()))
+            .invoke();
+        httpClient
+            .POST("/flight/availability/2033-05-01-09")
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(waiting.studentId(), "student"))
+            .invoke();
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var slots = httpClient
+                .GET("/flight/capacity/2033-04")
+                .responseBodyAs(SlotCapacityView.SlotCapacityList.class)
+                .invoke()
+                .body()
+                .slots();
+
+            assertEquals(1, slots.size());
+            var slot = slots.get(0);
+            assertEquals("2033-04-10-09", slot.slotId());
+            assertEquals(1, slot.availableStudents());
+            assertEquals(0, slot.availableInstructors());
+            assertEquals(0, slot.availableAircraft());
+            assertEquals(1, slot.bookings());
+        });
+    }
+
+    @Test
+    public void bookableSlotsForStudent() {
+        var participants = participants();
+        // The index only covers slots from around now on
+        var tomorrow = LocalDateTime.now(ZoneOffset.UTC).plusDays(1).truncatedTo(ChronoUnit.DAYS);
+        var first = tomorrow.plusHours(9).format(SLOT_ID_FORMAT);
+        var second = tomorrow.plusHours(10).format(SLOT_ID_FORMAT);
+        var third = tomorrow.plusHours(11).format(SLOT_ID_FORMAT);
+        markAvailable(first, participants);
+        markAvailable(second, participants);
+        // Not bookable: no aircraft
+        httpClient
+            .POST("/flight/availability/" + third)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(participants.studentId(), "student"))
+            .invoke();
+        httpClient
+            .POST("/flight/availability/" + third)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(participants.instructorId(), "instructor"))
+            .invoke();
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var slots = httpClient
+                .GET("/flight/bookable/" + participants.studentId() + "?instructorId=" + participants.instructorId())
+                .responseBodyAs(FlightEndpoint.BookableSlots.class)
+                .invoke()
+                .body()
+                .slots();
+            assertEquals(List.of(first, second), slots.stream().map(BookableIndex.Match::slotId).toList());
+        });
+
+        var limited = httpClient
+            .GET("/flight/bookable/" + participants.studentId() + "?limit=1")
+            .responseBodyAs(FlightEndpoint.BookableSlots.class)
+            .invoke()
+            .body()
+            .slots();
+        assertEquals(List.of(first), limited.stream().map(BookableIndex.Match::slotId).toList());
+    }
+
+    @Test
+    public void scheduleBooksPlannedLessons() {
+        var participants = participants();
+        markAvailable("2033-06-06-09", participants);
+        markAvailable("2033-06-07-09", participants);
+        var request = new FlightEndpoint.ScheduleRequest(
+            "2033-06-06-00",
+            "2033-06-13-00",
+            List.of(new WeeklyScheduler.LessonRequest(participants.studentId(), 3)),
+            1,
+            true
+        );
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var plan = httpClient
+                .POST("/flight/schedules")
+                .withRequestBody(request)
+                .responseBodyAs(FlightEndpoint.ScheduleResponse.class)
+                .invoke()
+                .body();
+            assertEquals(List.of("2033-06-06-09", "2033-06-07-09"), plan.lessons().stream().map(FlightEndpoint.ScheduledLesson::slotId).toList());
+            assertTrue(plan.lessons().stream().allMatch(lesson -> lesson.status().equals("planned")));
+            assertEquals(Map.of(participants.studentId(), 1), plan.unscheduled());
+        });
+
+        var booked = httpClient
+            .POST("/flight/schedules")
+            .withRequestBody(new FlightEndpoint.ScheduleRequest(
+                request.from(), request.to(), request.lessons(), request.maxLessonsPerDay(), false))
+            .responseBodyAs(FlightEndpoint.ScheduleResponse.class)
+            .invoke()
+            .body();
+        assertTrue(booked.lessons().stream().allMatch(lesson -> lesson.status().equals("booked")));
+        var slot = httpClient.GET("/flight/availability/2033-06-06-09").responseBodyAs(Timeslot.class).invoke().body();
+        assertFalse(slot.isWaiting(participants.studentId(), ParticipantType.STUDENT));
+        assertEquals(3, slot.bookings().size());
+    }
+
+    @Test
+    public void waitlistedStudentIsBookedWhenCapacityFreesUp() {
+        var participants = participants();
+        var slotId = UUID.randomUUID().toString();
+        var bookingId = UUID.randomUUID().toString();
+        markAvailable(slotId, participants);
+        httpClient
+            .POST("/flight/bookings/" + slotId)
+            .withRequestBody(participants.bookingRequest(bookingId))
+            .invoke();
+
+        var waiting = "student-" + UUID.randomUUID();
+        httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(waiting, "student"))
+            .invoke();
+        var entry = httpClient
+            .POST("/flight/waitlist/" + slotId)
+            .withRequestBody(new FlightEndpoint.WaitlistRequest(waiting, participants.aircraftId(), participants.instructorId(), null))
+            .responseBodyAs(SlotWaitlistEntity.Entry.class)
+            .invoke()
+            .body();
+        var waitlist = httpClient.GET("/flight/waitlist/" + slotId).responseBodyAs(SlotWaitlistEntity.State.class).invoke();
+        assertEquals(List.of(waiting), waitlist.body().entries().stream().map(SlotWaitlistEntity.Entry::studentId).toList());
+
+        // Canceling frees the instructor and aircraft once they are available again
+        httpClient.DELETE("/flight/bookings/" + slotId + "/" + bookingId).invoke();
+        for (var participant : List.of(
+            new FlightEndpoint.AvailabilityRequest(participants.aircraftId(), "aircraft"),
+            new FlightEndpoint.AvailabilityRequest(participants.instructorId(), "instructor"))) {
+            httpClient.POST("/flight/availability/" + slotId).withRequestBody(participant).invoke();
+        }
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var slot = httpClient.GET("/flight/availability/" + slotId).responseBodyAs(Timeslot.class).invoke().body();
+            assertEquals(3, slot.findBooking(entry.bookingId()).size());
+            var remaining = httpClient.GET("/flight/waitlist/" + slotId).responseBodyAs(SlotWaitlistEntity.State.class).invoke();
+            assertTrue(remaining.body().entries().isEmpty());
+        });
+    }
+
+    @Test
+    public void cachedAvailabilityReflectsWrites() {
+        String slotId = UUID.randomUUID().toString();
+
+        var empty = httpClient.GET("/flight/availability/" + slotId).responseBodyAs(Timeslot.class).invoke();
+        assertTrue(empty.body().available().isEmpty());
+        var cached = httpClient.GET("/flight/availability/" + slotId).responseBodyAs(Timeslot.class).invoke();
+        assertTrue(cached.body().available().isEmpty());
+
+        httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest("student-1", "student"))
+            .invoke();
+
+        var updated = httpClient.GET("/flight/availability/" + slotId).responseBodyAs(Timeslot.class).invoke();
+        assertEquals(1, updated.body().available().size());
+
+        var stats = httpClient
+            .GET("/flight/metrics/availability-cache")
+            .responseBodyAs(SlotCache.Stats.class)
+            .invoke();
+        assertTrue(stats.body().hits() > 0);
+    }
+
+    @Test
+    public void metricsReportCommandLatencyAndRejections() {
+        String slotId = UUID.randomUUID().toString();
+
+        httpClient
+            .POST("/flight/bookings/" + slotId)
+            .withRequestBody(new FlightEndpoint.BookingRequest("student-1", "aircraft-1", "instructor-1", "booking-1"))
+            .invoke();
+
+        var metrics = httpClient
+            .GET("/flight/metrics")
+            .responseBodyAs(FlightEndpoint.MetricsResponse.class)
+            .invoke()
+            .body()
+            .metrics();
+        assertTrue(metrics.commands().get("bookSlot").count() > 0);
+        assertTrue(metrics.rejections().get("bookSlot").get("reservation is not bookable") > 0);
+    }
+
+    @Test
+    public void batchAvailabilityReportsPerItemResults() {
+        String runId = UUID.randomUUID().toString();
+        var items = List.of(
+            new FlightEndpoint.BatchAvailabilityItem(runId + "-1", "instructor-1", "instructor"),
+            new FlightEndpoint.BatchAvailabilityItem(runId + "-2", "instructor-1", "instructor"),
+            new FlightEndpoint.BatchAvailabilityItem(runId + "-1", "instructor-1", "instructor"),
+            new FlightEndpoint.BatchAvailabilityItem(runId + "-3", "instructor-1", "pilot")
+        );
+
+        var response = httpClient
+            .POST("/flight/availability")
+            .withRequestBody(new FlightEndpoint.BatchAvailabilityRequest(items))
+            .responseBodyAs(FlightEndpoint.BatchAvailabilityResponse.class)
+            .invoke();
+
+        assertEquals(StatusCodes.OK, response.status());
+        var statuses = response.body().results().stream().map(FlightEndpoint.BatchItemResult::status).toList();
+        // Items for slot 1 are applied in request order, so the duplicate is the one rejected
+        assertEquals(List.of("ok", "ok", "rejected", "invalid"), statuses);
+    }
+
+    @Test
+    public void blockBookingBooksEverySlot() {
+        var slotIds = List.of("2032-03-01-09", "2032-03-01-10", "2032-03-01-11");
+        var block = blockRequest(slotIds);
+        slotIds.forEach(slotId -> markAvailable(slotId, block));
+
+        var response = httpClient.POST("/flight/block-bookings").withRequestBody(block).invoke();
+        assertEquals(StatusCodes.CREATED, response.status());
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var state = httpClient
+                .GET("/flight/block-bookings/" + block.bookingId())
+                .responseBodyAs(BlockBookingWorkflow.State.class)
+                .invoke()
+                .body();
+            assertEquals(BlockBookingWorkflow.BOOKED, state.status());
+            assertTrue(state.latencyMillis() >= 0);
+        });
+        for (var slotId : slotIds) {
+            var slot = httpClient.GET("/flight/availability/" + slotId).responseBodyAs(Timeslot.class).invoke();
+            assertEquals(3, slot.body().findBooking(block.bookingId()).size());
+        }
+    }
+
+    @Test
+    public void blockBookingIsCompensatedWhenASlotIsNotBookable() {
+        var slotIds = List.of("2032-03-02-09", "2032-03-02-10", "2032-03-02-11");
+        var block = blockRequest(slotIds);
+        // Nobody marked the last slot available
+        slotIds.subList(0, 2).forEach(slotId -> markAvailable(slotId, block));
+
+        httpClient.POST("/flight/block-bookings").withRequestBody(block).invoke();
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            var state = httpClient
+                .GET("/flight/block-bookings/" + block.bookingId())
+                .responseBodyAs(BlockBookingWorkflow.State.class)
+                .invoke()
+                .body();
+            assertEquals(BlockBookingWorkflow.FAILED, state.status());
+            assertEquals(List.of("2032-03-02-11"), state.failures().stream().map(BlockBookingWorkflow.SlotFailure::slotId).toList());
+            // Only the slots that booked the block are canceled, not the one that refused it
+            assertEquals(List.of("2032-03-02-09", "2032-03-02-10"), state.compensate().stream().sorted().toList());
+        });
+        for (var slotId : slotIds) {
+            var slot = httpClient.GET("/flight/availability/" + slotId).responseBodyAs(Timeslot.class).invoke();
+            assertTrue(slot.body().findBooking(block.bookingId()).isEmpty());
+        }
+    }
+
+    @Test
+    public void blockBookingRejectsNonConsecutiveSlots() {
+        var block = blockRequest(List.of("2032-03-03-09", "2032-03-03-11"));
+
+        var response = httpClient.POST("/flight/block-bookings").withRequestBody(block).invoke();
+
+        assertEquals(StatusCodes.BAD_REQUEST, response.status());
+    }
+
+    private static ParticipantSlotsView.SlotRow slotRow(ServerSentEvent event) throws Exception {
+        return JsonSupport.getObjectMapper().readValue(event.getData(), ParticipantSlotsView.SlotRow.class);
+    }
+
+    // A student, aircraft and instructor unique to the calling test
+    private record Participants(String studentId, String aircraftId, String instructorId) {
+
+        FlightEndpoint.BookingRequest bookingRequest(String bookingId) {
+            return new FlightEndpoint.BookingRequest(studentId, aircraftId, instructorId, bookingId);
+        }
+    }
+
+    private static Participants participants() {
+        var runId = UUID.randomUUID().toString();
+        return new Participants("student-" + runId, "aircraft-" + runId, "instructor-" + runId);
+    }
+
+    // A block booking request for participants unique to the calling test
+    private static FlightEndpoint.BlockBookingRequest blockRequest(List<String> slotIds) {
+        var participants = participants();
+        return new FlightEndpoint.BlockBookingRequest(
+            UUID.randomUUID().toString(),
+            slotIds,
+            participants.studentId(),
+            participants.aircraftId(),
+            participants.instructorId()
+        );
+    }
+
+    private void markAvailable(String slotId, Participants participants) {
+        var requests = List.of(
+            new FlightEndpoint.AvailabilityRequest(participants.studentId(), "student"),
+            new FlightEndpoint.AvailabilityRequest(participants.aircraftId(), "aircraft"),
+            new FlightEndpoint.AvailabilityRequest(participants.instructorId(), "instructor")
+        );
+        for (var request : requests) {
+            httpClient.POST("/flight/availability/" + slotId).withRequestBody(request).invoke();
+        }
+    }
+
+    private void markAvailable(String slotId, FlightEndpoint.BlockBookingRequest block) {
+        markAvailable(slotId, new Participants(block.studentId(), block.aircraftId(), block.instructorId()));
+    }
 }
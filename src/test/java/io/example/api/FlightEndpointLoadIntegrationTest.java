@@ -0,0 +1,381 @@
+package io.example.api;
+
+import akka.javasdk.JsonSupport;
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Drives a mix of availability, booking, cancel and query traffic against the
+// FlightEndpoint in the local runtime and records the latency of every request
+// per route in an HdrHistogram. Only runs when asked for:
+//
+//   mvn -B verify -Dflight.loadtest=true -Dit.test=FlightEndpointLoadIntegrationTest
+//
+// Tunable with -Dflight.loadtest.users (concurrent virtual users, default 64),
+// .duration and .warmup (ISO-8601 or seconds, default 60 and 10), .slots (default
+// 200), .participants (per type, default 50) and .label (stored in the report).
+//
+// Each virtual user repeatedly picks a random slot and random participants, marks
+// them available, books the slot, queries it the way a client would and then
+// either cancels the booking or unmarks a participant. Picks collide with other
+// users, so a share of the commands is rejected, as in real traffic.
+//
+// `hotSlotBursts` instead sends bursts of availability marks to one slot at a
+// time, alternating between one concurrent request per participant and a single
+// batch request, and records how long each whole burst takes. The burst size is
+// -Dflight.loadtest.burst (default 50). Run it alone with
+// -Dit.test=FlightEndpointLoadIntegrationTest#hotSlotBursts.
+//
+// Per route it reports throughput and p50/p99/p999 latency, writes the full
+// percentile distribution to target/loadtest/{route}.hgrm and writes
+// target/loadtest/report.json (hot-slot.json for the bursts), which also holds
+// each histogram in compressed HdrHistogram form so runs from different commits
+// can be compared or merged.
+@EnabledIfSystemProperty(named = "flight.loadtest", matches = "true")
+public class FlightEndpointLoadIntegrationTest extends TestKitSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightEndpointLoadIntegrationTest.class);
+
+    private static final Path REPORT_DIR = Path.of("target", "loadtest");
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final int users = Integer.getInteger("flight.loadtest.users", 64);
+    private final Duration duration = durationProperty("flight.loadtest.duration", Duration.ofSeconds(60));
+    private final Duration warmup = durationProperty("flight.loadtest.warmup", Duration.ofSeconds(10));
+    private final int slots = Integer.getInteger("flight.loadtest.slots", 200);
+    private final int participants = Integer.getInteger("flight.loadtest.participants", 50);
+    private final int burst = Integer.getInteger("flight.loadtest.burst", 50);
+    private final String label = System.getProperty("flight.loadtest.label", "");
+
+    private final String runId = UUID.randomUUID().toString();
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+    // Requests started before this System.nanoTime() are warmup and not recorded
+    private volatile long recordFrom = Long.MAX_VALUE;
+
+    // The default client pool of 4 connections would queue concurrent users
+    @Override
+    protected TestKit.Settings testKitSettings() {
+        return TestKit.Settings.DEFAULT.withAdditionalConfig("""
+            akka.http.host-connection-pool.max-connections = 512
+            akka.http.host-connection-pool.max-open-requests = 1024
+            """);
+    }
+
+    @Test
+    public void mixedTraffic() throws Exception {
+        routes.clear();
+        log.info("Load test: {} users for {} after {} warmup, {} slots, {} participants per type",
+            users, duration, warmup, slots, participants);
+
+        recordFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = recordFrom + duration.toNanos();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < stopAt) {
+                        runScenario();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(duration.plus(warmup).plusMinutes(2).toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        var report = report(duration, users, slots, participants);
+        writeReport(report, "report.json");
+
+        for (var route : report.routes()) {
+            assertEquals(0, route.failed(), "unexpected failures on " + route.route());
+        }
+    }
+
+    @Test
+    public void hotSlotBursts() throws Exception {
+        routes.clear();
+        log.info("Hot slot: bursts of {} for {} after {} warmup", burst, duration, warmup);
+
+        var students = IntStream.range(0, burst).mapToObj(i -> "student-" + runId + "-" + i).toList();
+        recordFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = recordFrom + duration.toNanos();
+        int round = 0;
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (System.nanoTime() < stopAt) {
+                var slotId = "hot-" + runId + "-" + round++;
+                if (round % 2 == 0) {
+                    call("hot slot: single commands", () -> singleCommands(executor, slotId, students));
+                } else {
+                    call("hot slot: batch command", () -> batchCommand(slotId, students));
+                }
+            }
+        }
+
+        var report = report(duration, burst, 1, burst);
+        writeReport(report, "hot-slot.json");
+
+        for (var route : report.routes()) {
+            assertEquals(0, route.failed(), "unexpected failures on " + route.route());
+            assertEquals(0, route.rejected(), "unexpected rejections on " + route.route());
+        }
+    }
+
+    // Marks every student available in the slot with one request each, all at
+    // once, and returns the first status that isn't 200
+    private int singleCommands(ExecutorService executor, String slotId, List<String> students) {
+        var requests = students.stream()
+            .map(student -> executor.submit(() -> httpClient
+                .POST("/flight/availability/" + slotId)
+                .withRequestBody(new FlightEndpoint.AvailabilityRequest(student, "student"))
+                .invoke()
+                .status()
+                .intValue()))
+            .toList();
+        int status = 200;
+        for (var request : requests) {
+            try {
+                int result = request.get();
+                status = status == 200 ? result : status;
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return status;
+    }
+
+    // Marks every student available in the slot with one batch request, which
+    // the endpoint applies as one slot command, and returns 409 if any item
+    // wasn't applied
+    private int batchCommand(String slotId, List<String> students) {
+        var items = students.stream()
+            .map(student -> new FlightEndpoint.BatchAvailabilityItem(slotId, student, "student"))
+            .toList();
+        var response = httpClient
+            .POST("/flight/availability")
+            .withRequestBody(new FlightEndpoint.BatchAvailabilityRequest(items))
+            .responseBodyAs(FlightEndpoint.BatchAvailabilityResponse.class)
+            .invoke();
+        boolean allApplied = response.body().results().stream()
+            .allMatch(result -> result.status().equals(FlightEndpoint.BatchItemResult.OK));
+        return allApplied ? response.status().intValue() : 409;
+    }
+
+    private void runScenario() {
+        var random = ThreadLocalRandom.current();
+        var slotId = slotId(random.nextInt(slots));
+        var student = "student-" + runId + "-" + random.nextInt(participants);
+        var aircraft = "aircraft-" + runId + "-" + random.nextInt(participants);
+        var instructor = "instructor-" + runId + "-" + random.nextInt(participants);
+        var bookingId = UUID.randomUUID().toString();
+
+        call("POST /flight/availability/{slotId}", () -> httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(student, "student"))
+            .invoke()
+            .status()
+            .intValue());
+        call("POST /flight/availability/{slotId}", () -> httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(aircraft, "aircraft"))
+            .invoke()
+            .status()
+            .intValue());
+        call("POST /flight/availability/{slotId}", () -> httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(instructor, "instructor"))
+            .invoke()
+            .status()
+            .intValue());
+        call("GET /flight/availability/{slotId}", () -> httpClient
+            .GET("/flight/availability/" + slotId)
+            .invoke()
+            .status()
+            .intValue());
+
+        int booked = call("POST /flight/bookings/{slotId}", () -> httpClient
+            .POST("/flight/bookings/" + slotId)
+            .withRequestBody(new FlightEndpoint.BookingRequest(student, aircraft, instructor, bookingId))
+            .invoke()
+            .status()
+            .intValue());
+
+        call("GET /flight/slots/{participantId}/{status}", () -> httpClient
+            .GET("/flight/slots/" + student + "/booked")
+            .invoke()
+            .status()
+            .intValue());
+
+        if (booked == 201 && random.nextBoolean()) {
+            call("DELETE /flight/bookings/{slotId}/{bookingId}", () -> httpClient
+                .DELETE("/flight/bookings/" + slotId + "/" + bookingId)
+                .invoke()
+                .status()
+                .intValue());
+        } else if (booked != 201) {
+            call("DELETE /flight/availability/{slotId}", () -> httpClient
+                .DELETE("/flight/availability/" + slotId)
+                .withRequestBody(new FlightEndpoint.AvailabilityRequest(student, "student"))
+                .invoke()
+                .status()
+                .intValue());
+        }
+    }
+
+    // Times one request and returns its status code, or -1 if it threw
+    private int call(String route, IntSupplier request) {
+        long started = System.nanoTime();
+        int status;
+        try {
+            status = request.getAsInt();
+        } catch (RuntimeException e) {
+            log.debug("{} failed", route, e);
+            status = -1;
+        }
+        if (started >= recordFrom) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+            routes.computeIfAbsent(route, r -> new RouteStats()).record(micros, status);
+        }
+        return status;
+    }
+
+    private Report report(Duration measured, int users, int slots, int participants) {
+        double seconds = measured.toMillis() / 1000.0;
+        var results = routes.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(entry -> entry.getValue().result(entry.getKey(), seconds))
+            .toList();
+        var report = new Report(Instant.now(), label, users, measured.toSeconds(), slots, participants, results);
+
+        log.info("Load test results over {}s:", measured.toSeconds());
+        results.stream()
+            .sorted(Comparator.comparing(RouteResult::route))
+            .forEach(r -> log.info(
+                "{}: {} req ({} req/s), {} rejected, {} failed, p50 {} ms, p99 {} ms, p999 {} ms, max {} ms",
+                r.route(), r.count(), String.format("%.1f", r.throughput()), r.rejected(), r.failed(),
+                r.p50Millis(), r.p99Millis(), r.p999Millis(), r.maxMillis()));
+        return report;
+    }
+
+    private void writeReport(Report report, String name) throws IOException {
+        Files.createDirectories(REPORT_DIR);
+        for (var entry : routes.entrySet()) {
+            var file = REPORT_DIR.resolve(entry.getKey().replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm");
+            try (var out = new PrintStream(Files.newOutputStream(file))) {
+                // Microsecond values, reported in milliseconds
+                entry.getValue().histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        var json = REPORT_DIR.resolve(name);
+        JsonSupport.getObjectMapper().writerWithDefaultPrettyPrinter().writeValue(json.toFile(), report);
+        log.info("Load test report written to {}", json.toAbsolutePath());
+    }
+
+    // Slots are hourly from a fixed date far enough ahead not to clash with
+    // slots used by other tests
+    private static String slotId(int n) {
+        var start = LocalDateTime.of(2034, 1, 1, 0, 0).plusHours(n);
+        return String.format("%04d-%02d-%02d-%02d",
+            start.getYear(), start.getMonthValue(), start.getDayOfMonth(), start.getHour());
+    }
+
+    private static Duration durationProperty(String name, Duration defaultValue) {
+        var value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value.startsWith("P") ? Duration.parse(value) : Duration.ofSeconds(Long.parseLong(value));
+    }
+
+    private static final class RouteStats {
+        final Histogram histogram = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+
+        void record(long micros, int status) {
+            histogram.recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+            if (status >= 400 && status < 500) {
+                rejected.increment();
+            } else if (status < 200 || status >= 500) {
+                failed.increment();
+            }
+        }
+
+        RouteResult result(String route, double seconds) {
+            var buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            return new RouteResult(
+                route,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds,
+                rejected.sum(),
+                failed.sum(),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()),
+                Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length))
+            );
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+
+    // `histogram` is the base64 of the compressed HdrHistogram, in microseconds
+    public record RouteResult(
+        String route,
+        long count,
+        double throughput,
+        long rejected,
+        long failed,
+        double p50Millis,
+        double p99Millis,
+        double p999Millis,
+        double maxMillis,
+        String histogram
+    ) {
+    }
+
+    public record Report(
+        Instant finishedAt,
+        String label,
+        int users,
+        long durationSeconds,
+        int slots,
+        int participantsPerType,
+        List<RouteResult> routes
+    ) {
+    }
+}
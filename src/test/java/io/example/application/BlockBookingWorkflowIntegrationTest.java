@@ -0,0 +1,51 @@
+package io.example.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import io.example.api.FlightEndpoint;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BlockBookingWorkflowIntegrationTest extends TestKitSupport {
+
+    // A retried `book-slots` step runs bookAll again after some slots have
+    // already booked the block; those must still be compensated
+    @Test
+    public void retriedBookingStillCompensatesBookedSlots() {
+        var runId = UUID.randomUUID().toString();
+        var slotIds = List.of("2032-04-01-09", "2032-04-01-10", "2032-04-01-11");
+        var block = new BlockBookingWorkflow.Command.BookBlock(
+            runId, slotIds, "student-" + runId, "aircraft-" + runId, "instructor-" + runId
+        );
+        // Nobody marked the last slot available
+        for (var slotId : slotIds.subList(0, 2)) {
+            markAvailable(slotId, block.studentId(), "student");
+            markAvailable(slotId, block.aircraftId(), "aircraft");
+            markAvailable(slotId, block.instructorId(), "instructor");
+        }
+        var workflow = new BlockBookingWorkflow(componentClient);
+
+        var first = workflow.bookAll(block);
+        var retried = workflow.bookAll(block);
+
+        assertEquals(slotIds.subList(0, 2), first.booked());
+        assertEquals(first.booked(), retried.booked());
+        assertEquals(List.of("2032-04-01-11"), retried.failures().stream().map(BlockBookingWorkflow.SlotFailure::slotId).toList());
+
+        var state = new BlockBookingWorkflow.State(
+            block.bookingId(), slotIds, BlockBookingWorkflow.BOOKING, List.of(), List.of(), null, Instant.now(), null
+        );
+        assertEquals(slotIds.subList(0, 2), state.compensating(retried).compensate());
+    }
+
+    private void markAvailable(String slotId, String participantId, String participantType) {
+        httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(participantId, participantType))
+            .invoke();
+    }
+}
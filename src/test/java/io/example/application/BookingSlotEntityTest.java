@@ -1,12 +1,19 @@
 package io.example.application;
 
 import akka.Done;
+import akka.javasdk.JsonSupport;
 import akka.javasdk.testkit.EventSourcedTestKit;
 import akka.javasdk.testkit.TestKitSupport;
+import io.example.api.FlightEndpoint;
+import io.example.domain.BookingEvent;
 import io.example.domain.Participant;
 import io.example.domain.Participant.ParticipantType;
+import io.example.domain.Timeslot;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -74,6 +81,34 @@ public class BookingSlotEntityTest extends TestKitSupport {
         assertTrue(result.isError());
     }
 
+    @Test
+    public void testBatchAvailabilityIsOnePersistWithPerParticipantOutcomes() {
+        var testKit = EventSourcedTestKit.of(BookingSlotEntity::new);
+
+        var student = new Participant("student-1", ParticipantType.STUDENT);
+        var instructor = new Participant("instructor-1", ParticipantType.INSTRUCTOR);
+        testKit.method(BookingSlotEntity::markSlotAvailable)
+            .invoke(new BookingSlotEntity.Command.MarkSlotAvailable(instructor));
+
+        var result = testKit
+            .method(BookingSlotEntity::markSlotsAvailable)
+            .invoke(new BookingSlotEntity.Command.MarkSlotsAvailable(List.of(student, instructor, student)));
+
+        // Only the first student is applied; the instructor was already available
+        // and the second student is a duplicate within the batch
+        var outcomes = result.getReply().outcomes();
+        assertEquals(List.of(true, false, false), outcomes.stream().map(BookingSlotEntity.Outcome::applied).toList());
+        assertEquals("participant already available", outcomes.get(1).reason());
+        assertEquals(1, result.getAllEvents().size());
+        assertEquals(2, testKit.getState().available().size());
+
+        var unmarked = testKit
+            .method(BookingSlotEntity::unmarkSlotsAvailable)
+            .invoke(new BookingSlotEntity.Command.UnmarkSlotsAvailable(List.of(student, instructor)));
+        assertEquals(2, unmarked.getAllEvents().size());
+        assertTrue(testKit.getState().available().isEmpty());
+    }
+
     @Test
     public void testUnavailableParticipantsNotBooked() {
         var testKit = EventSourcedTestKit.of(BookingSlotEntity::new);
@@ -114,7 +149,10 @@ public class BookingSlotEntityTest extends TestKitSupport {
 
         assertEquals(Done.done(), result.getReply());
 
-        assertEquals(3, result.getAllEvents().size());
+        // A booking is a single journal write
+        assertEquals(1, result.getAllEvents().size());
+        var booked = result.getNextEventOfType(BookingEvent.ReservationBooked.class);
+        assertEquals("booking-1", booked.bookingId());
 
         // Verify that the booking is stored in the state
         var state = testKit.getState();
@@ -150,6 +188,38 @@ public class BookingSlotEntityTest extends TestKitSupport {
         assertTrue(result.isError());
     }
 
+    @Test
+    public void testRebookingTheSameReservationIsAcknowledged() {
+        var testKit = EventSourcedTestKit.of(BookingSlotEntity::new);
+        markAvailable(testKit, "student-1", "instructor-1", "airplane-1");
+        var booking = new BookingSlotEntity.Command.BookReservation("student-1", "airplane-1", "instructor-1", "booking-1");
+        testKit.method(BookingSlotEntity::bookSlot).invoke(booking);
+
+        var result = testKit.method(BookingSlotEntity::bookSlot).invoke(booking);
+
+        assertEquals(Done.done(), result.getReply());
+        assertTrue(result.getAllEvents().isEmpty());
+        assertEquals(3, testKit.getState().findBooking("booking-1").size());
+    }
+
+    @Test
+    public void testBookingIdCannotBeReused() {
+        var testKit = EventSourcedTestKit.of(BookingSlotEntity::new);
+        markAvailable(testKit, "student-1", "instructor-1", "airplane-1");
+        markAvailable(testKit, "student-2", "instructor-2", "airplane-2");
+        testKit
+            .method(BookingSlotEntity::bookSlot)
+            .invoke(new BookingSlotEntity.Command.BookReservation("student-1", "airplane-1", "instructor-1", "booking-1"));
+
+        var result = testKit
+            .method(BookingSlotEntity::bookSlot)
+            .invoke(new BookingSlotEntity.Command.BookReservation("student-2", "airplane-2", "instructor-2", "booking-1"));
+
+        assertTrue(result.isError());
+        assertEquals("booking ID already in use", result.getError());
+        assertEquals(3, testKit.getState().findBooking("booking-1").size());
+    }
+
     @Test
     public void testBookingCancelled() {
         var testKit = EventSourcedTestKit.of(BookingSlotEntity::new);
@@ -177,6 +247,10 @@ public class BookingSlotEntityTest extends TestKitSupport {
         // Then cancel the booking
         var cancelResult = testKit.method(BookingSlotEntity::cancelBooking).invoke("booking-1");
         assertEquals(Done.done(), cancelResult.getReply());
+        var canceled = cancelResult.getNextEventOfType(BookingEvent.ReservationCanceled.class);
+        assertEquals(student.id(), canceled.studentId());
+        assertEquals(instructor.id(), canceled.instructorId());
+        assertEquals(aircraft.id(), canceled.aircraftId());
 
         // Verify that the booking is removed from the state
         var state = testKit.getState();
@@ -207,6 +281,24 @@ public class BookingSlotEntityTest extends TestKitSupport {
         assertTrue(result.isError());
     }
 
+    @Test
+    public void testOnlyPastSlotsAreArchived() {
+        var cutoff = Instant.parse("2025-08-09T00:00:00Z");
+        var archive = new BookingSlotEntity.Command.ArchiveSlot(cutoff, List.of("student-1"));
+
+        var future = EventSourcedTestKit.of("2025-08-09-10", BookingSlotEntity::new);
+        assertTrue(future.method(BookingSlotEntity::archive).invoke(archive).isError());
+
+        // Slot IDs that don't name a time never pass
+        var untimed = EventSourcedTestKit.of("slot-1", BookingSlotEntity::new);
+        assertTrue(untimed.method(BookingSlotEntity::archive).invoke(archive).isError());
+
+        var past = EventSourcedTestKit.of("2025-08-08-10", BookingSlotEntity::new);
+        var result = past.method(BookingSlotEntity::archive).invoke(archive);
+        var archived = result.getNextEventOfType(BookingEvent.SlotArchived.class);
+        assertEquals(List.of("student-1"), archived.participantIds());
+    }
+
     @Test
     public void testGetSlotWhenEmpty() {
         var testKit = EventSourcedTestKit.of(BookingSlotEntity::new);
@@ -214,4 +306,77 @@ public class BookingSlotEntityTest extends TestKitSupport {
 
         assertEquals(testKit.getState(), result.getReply());
     }
+
+    @Test
+    public void testSlotJsonShapeIsPreserved() throws Exception {
+        var testKit = EventSourcedTestKit.of(BookingSlotEntity::new);
+
+        var student = new Participant("student-1", ParticipantType.STUDENT);
+        var instructor = new Participant("instructor-1", ParticipantType.INSTRUCTOR);
+        var aircraft = new Participant("airplane-1", ParticipantType.AIRCRAFT);
+
+        var markAvailable = testKit.method(BookingSlotEntity::markSlotAvailable);
+        markAvailable.invoke(new BookingSlotEntity.Command.MarkSlotAvailable(student));
+        markAvailable.invoke(new BookingSlotEntity.Command.MarkSlotAvailable(instructor));
+        markAvailable.invoke(new BookingSlotEntity.Command.MarkSlotAvailable(aircraft));
+        testKit
+            .method(BookingSlotEntity::bookSlot)
+            .invoke(new BookingSlotEntity.Command.BookReservation(
+                student.id(),
+                aircraft.id(),
+                instructor.id(),
+                "booking-1"
+            ));
+
+        var mapper = JsonSupport.getObjectMapper();
+        var json = mapper.readTree(mapper.writeValueAsString(FlightEndpoint.SlotResponse.of(testKit.getState())));
+
+        assertEquals(3, json.get("bookings").size());
+        assertEquals("booking-1", json.get("bookings").get(0).get("bookingId").asText());
+        assertTrue(json.get("bookings").get(0).get("participant").has("participantType"));
+        assertEquals(0, json.get("available").size());
+    }
+
+    @Test
+    public void testSnapshotIsCompactAndReadsTheApiForm() throws Exception {
+        var mapper = JsonSupport.getObjectMapper();
+        var testKit = EventSourcedTestKit.of(BookingSlotEntity::new);
+        for (int n = 0; n < 20; n++) {
+            var id = "-" + n + "-6f1c2a9e-3b47-4d1e-9a52-0c8e7d41b6f3";
+            for (var participant : List.of(
+                new Participant("student" + id, ParticipantType.STUDENT),
+                new Participant("instructor" + id, ParticipantType.INSTRUCTOR),
+                new Participant("aircraft" + id, ParticipantType.AIRCRAFT))) {
+                testKit.method(BookingSlotEntity::markSlotAvailable)
+                    .invoke(new BookingSlotEntity.Command.MarkSlotAvailable(participant));
+            }
+            if (n % 2 == 0) {
+                testKit.method(BookingSlotEntity::bookSlot).invoke(new BookingSlotEntity.Command.BookReservation(
+                    "student" + id, "aircraft" + id, "instructor" + id, "booking" + id));
+            }
+        }
+        var slot = testKit.getState();
+
+        var snapshot = mapper.writeValueAsBytes(slot);
+        var apiForm = mapper.writeValueAsBytes(FlightEndpoint.SlotResponse.of(slot));
+        assertEquals(slot, mapper.readValue(snapshot, Timeslot.class));
+        // Snapshots taken before the compact form have the API form
+        assertEquals(slot, mapper.readValue(apiForm, Timeslot.class));
+        assertTrue(snapshot.length < apiForm.length * 0.6, snapshot.length + " vs " + apiForm.length + " bytes");
+    }
+
+    private static void markAvailable(
+        EventSourcedTestKit<Timeslot, BookingEvent, BookingSlotEntity> testKit,
+        String studentId,
+        String instructorId,
+        String aircraftId
+    ) {
+        for (var participant : List.of(
+            new Participant(studentId, ParticipantType.STUDENT),
+            new Participant(instructorId, ParticipantType.INSTRUCTOR),
+            new Participant(aircraftId, ParticipantType.AIRCRAFT))) {
+            testKit.method(BookingSlotEntity::markSlotAvailable)
+                .invoke(new BookingSlotEntity.Command.MarkSlotAvailable(participant));
+        }
+    }
 }
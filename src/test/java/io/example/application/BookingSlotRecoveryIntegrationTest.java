@@ -0,0 +1,89 @@
+package io.example.application;
+
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import io.example.domain.Participant;
+import io.example.domain.Participant.ParticipantType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares how long booking slots with a short and a long journal take to
+// recover in the local runtime. The slots are left idle until the runtime
+// passivates them, so the first read after that rehydrates each slot from its
+// latest snapshot and the events after it. With snapshots every 100 events, a
+// slot with 5,001 events replays no more than one with 21.
+public class BookingSlotRecoveryIntegrationTest extends TestKitSupport {
+
+    private static final Duration PASSIVATION = Duration.ofSeconds(2);
+    private static final int SLOTS = 3;
+
+    @Override
+    protected TestKit.Settings testKitSettings() {
+        return TestKit.Settings.DEFAULT.withAdditionalConfig("""
+            akka.javasdk.event-sourced-entity.snapshot-every = 100
+            akka.javasdk.entity.passivation-timeout = %ds
+            """.formatted(PASSIVATION.toSeconds()));
+    }
+
+    @Test
+    public void recoveryTimeDoesNotGrowWithJournalLength() throws Exception {
+        var shortSlots = new ArrayList<String>();
+        var longSlots = new ArrayList<String>();
+        for (int i = 0; i < SLOTS; i++) {
+            shortSlots.add(churnedSlot(10));
+            longSlots.add(churnedSlot(2_500));
+        }
+
+        Thread.sleep(PASSIVATION.multipliedBy(3).toMillis());
+
+        var shortRecovery = medianRecovery(shortSlots);
+        var longRecovery = medianRecovery(longSlots);
+        // Without snapshots the long journals replay about 240 times as many events
+        assertTrue(
+            longRecovery.compareTo(shortRecovery.multipliedBy(3).plusMillis(50)) < 0,
+            "short journal " + shortRecovery.toMillis() + "ms, long journal " + longRecovery.toMillis() + "ms");
+    }
+
+    // Marks and unmarks the same participant repeatedly, leaving it available,
+    // so the journal holds 2 * cycles + 1 events
+    private String churnedSlot(int cycles) {
+        var slotId = UUID.randomUUID().toString();
+        var participant = new Participant("student-" + slotId, ParticipantType.STUDENT);
+        for (int i = 0; i < cycles; i++) {
+            mark(slotId, participant);
+            componentClient
+                .forEventSourcedEntity(slotId)
+                .method(BookingSlotEntity::unmarkSlotAvailable)
+                .invoke(new BookingSlotEntity.Command.UnmarkSlotAvailable(participant));
+        }
+        mark(slotId, participant);
+        return slotId;
+    }
+
+    private void mark(String slotId, Participant participant) {
+        componentClient
+            .forEventSourcedEntity(slotId)
+            .method(BookingSlotEntity::markSlotAvailable)
+            .invoke(new BookingSlotEntity.Command.MarkSlotAvailable(participant));
+    }
+
+    // The median time of the first read of each slot, which recovers it
+    private Duration medianRecovery(List<String> slotIds) {
+        var times = new ArrayList<Duration>();
+        for (var slotId : slotIds) {
+            long started = System.nanoTime();
+            var slot = componentClient.forEventSourcedEntity(slotId).method(BookingSlotEntity::getSlot).invoke();
+            times.add(Duration.ofNanos(System.nanoTime() - started));
+            assertTrue(slot.isWaiting("student-" + slotId, ParticipantType.STUDENT));
+        }
+        Collections.sort(times);
+        return times.get(times.size() / 2);
+    }
+}
@@ -0,0 +1,132 @@
+package io.example.application;
+
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import io.example.api.FlightEndpoint;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs one archiver batch directly, with a window that covers the whole day so
+// it doesn't depend on the time the test runs, and checks everything that
+// archiving a slot deletes and the summary it leaves behind.
+public class SlotArchiverIntegrationTest extends TestKitSupport {
+
+    private static final String BOOKED_SLOT = "2021-06-01-09";
+    private static final String AVAILABLE_SLOT = "2021-06-01-10";
+    private static final String FUTURE_SLOT = "2099-06-01-09";
+
+    @Override
+    protected TestKit.Settings testKitSettings() {
+        return TestKit.Settings.DEFAULT.withAdditionalConfig("""
+            flight.archive.retention = 1d
+            flight.archive.window-start = "00:00"
+            flight.archive.window-end = "00:00"
+            """);
+    }
+
+    @Test
+    public void archivesPastSlots() {
+        var runId = UUID.randomUUID().toString();
+        var studentId = "student-" + runId;
+        var aircraftId = "aircraft-" + runId;
+        var instructorId = "instructor-" + runId;
+        var bookingId = "booking-" + runId;
+
+        for (var slotId : List.of(BOOKED_SLOT, FUTURE_SLOT)) {
+            markAvailable(slotId, studentId, "student");
+            markAvailable(slotId, aircraftId, "aircraft");
+            markAvailable(slotId, instructorId, "instructor");
+        }
+        httpClient
+            .POST("/flight/bookings/" + BOOKED_SLOT)
+            .withRequestBody(new FlightEndpoint.BookingRequest(studentId, aircraftId, instructorId, bookingId))
+            .invoke();
+        markAvailable(AVAILABLE_SLOT, studentId, "student");
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            assertEquals(List.of(BOOKED_SLOT, AVAILABLE_SLOT), slotsStartingBefore(Instant.now()));
+            assertEquals(4, participantSlots(BOOKED_SLOT).size() + participantSlots(AVAILABLE_SLOT).size());
+        });
+
+        componentClient.forTimedAction().method(SlotArchiver::archiveBatch).invoke(0);
+
+        Awaitility.await().ignoreExceptions().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            // SlotParticipantsView rows
+            assertTrue(slotsStartingBefore(Instant.now()).isEmpty());
+            assertEquals(List.of(FUTURE_SLOT), slotsWith(studentId, "available"));
+            assertTrue(slotsWith(studentId, "booked").isEmpty());
+            // Participant slots and their ParticipantSlotsView rows
+            assertTrue(participantSlots(BOOKED_SLOT).isEmpty());
+            assertTrue(participantSlots(AVAILABLE_SLOT).isEmpty());
+            assertEquals(3, participantSlots(FUTURE_SLOT).size());
+        });
+
+        // A later batch that still sees the slot in a lagging view summarizes
+        // its deleted, empty state; that must not replace the summary
+        componentClient
+            .forKeyValueEntity("2021-06-01")
+            .method(SlotArchiveEntity::addSlot)
+            .invoke(new SlotArchiveEntity.ArchivedSlot(BOOKED_SLOT, List.of(), 0));
+
+        var archive = httpClient
+            .GET("/flight/archive/2021-06-01")
+            .responseBodyAs(SlotArchiveEntity.State.class)
+            .invoke()
+            .body();
+        var slots = archive.slots().stream().sorted(Comparator.comparing(SlotArchiveEntity.ArchivedSlot::slotId)).toList();
+        assertEquals(List.of(
+            new SlotArchiveEntity.ArchivedSlot(
+                BOOKED_SLOT,
+                List.of(new SlotArchiveEntity.ArchivedBooking(bookingId, studentId, aircraftId, instructorId)),
+                0
+            ),
+            new SlotArchiveEntity.ArchivedSlot(AVAILABLE_SLOT, List.of(), 1)
+        ), slots);
+    }
+
+    private List<String> slotsStartingBefore(Instant before) {
+        return componentClient
+            .forView()
+            .method(SlotParticipantsView::getSlotsStartingBefore)
+            .invoke(new SlotParticipantsView.StartsBeforeInput(before, 100))
+            .slots()
+            .stream()
+            .map(SlotParticipantsView.SlotParticipantsRow::slotId)
+            .toList();
+    }
+
+    private List<String> slotsWith(String participantId, String status) {
+        return componentClient
+            .forView()
+            .method(SlotParticipantsView::getSlotsByStatusKey)
+            .invoke(new SlotParticipantsView.StatusKeyInput(SlotParticipantsView.statusKey(participantId, status)))
+            .slots()
+            .stream()
+            .map(SlotParticipantsView.SlotParticipantsRow::slotId)
+            .toList();
+    }
+
+    private List<ParticipantSlotsView.SlotRow> participantSlots(String slotId) {
+        return componentClient
+            .forView()
+            .method(ParticipantSlotsView::getSlotsBySlotId)
+            .invoke(new ParticipantSlotsView.SlotIdInput(slotId))
+            .slots();
+    }
+
+    private void markAvailable(String slotId, String participantId, String participantType) {
+        httpClient
+            .POST("/flight/availability/" + slotId)
+            .withRequestBody(new FlightEndpoint.AvailabilityRequest(participantId, participantType))
+            .invoke();
+    }
+}
@@ -0,0 +1,44 @@
+package io.example.application;
+
+import akka.javasdk.testkit.TestKitSupport;
+import io.example.domain.Participant;
+import io.example.domain.Participant.ParticipantType;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SlotToParticipantConsumerIntegrationTest extends TestKitSupport {
+
+    @Test
+    public void projectsLargeAvailabilityBacklog() throws Exception {
+        int slots = 1_000;
+        String participantId = UUID.randomUUID().toString();
+        String runId = UUID.randomUUID().toString();
+        var participant = new Participant(participantId, ParticipantType.INSTRUCTOR);
+
+        // Build up a backlog of booking slot events as fast as the entities accept them
+        var marks = IntStream.range(0, slots)
+            .mapToObj(i -> componentClient
+                .forEventSourcedEntity(runId + "-" + i)
+                .method(BookingSlotEntity::markSlotAvailable)
+                .invokeAsync(new BookingSlotEntity.Command.MarkSlotAvailable(participant))
+                .toCompletableFuture())
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(marks).get(60, TimeUnit.SECONDS);
+
+        Awaitility.await().ignoreExceptions().atMost(60, TimeUnit.SECONDS).untilAsserted(() -> {
+            var result = componentClient
+                .forView()
+                .method(ParticipantSlotsView::getSlotsByParticipantAndStatus)
+                .invoke(new ParticipantSlotsView.ParticipantStatusInput(participantId, "available"));
+
+            assertEquals(slots, result.slots().size());
+        });
+    }
+}